@@ -0,0 +1,66 @@
+package de.joshicodes.javashock.action;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.StartupMode;
+import de.joshicodes.javashock.action.control.ControlData;
+import de.joshicodes.javashock.object.Shocker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.http.HttpRequest;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the {@link HttpRequest} of an action, including the body and the headers. <br>
+ * Lives in the package of {@link RestAction} to reach its protected {@code buildRequest()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildRequestBenchmark {
+
+    private JavaShock instance;
+    private RestAction<Boolean> control;
+    private RestAction<Shocker> get;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        instance = JavaShock.builder("benchmark")
+                .apiHost("http://127.0.0.1:1")
+                .startupMode(StartupMode.NONE)
+                .build();
+        final Shocker shocker = new Shocker(instance, UUID.randomUUID().toString(), "Shocker", 1, "CaiXianlin", false, null);
+        control = shocker.prepareControl(new ControlData(ControlData.ControlType.SHOCK, 50, 1000));
+        get = instance.retrieveShocker(shocker.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        instance.close();
+    }
+
+    @Benchmark
+    public HttpRequest controlRequest() {
+        return control.buildRequest().build();
+    }
+
+    @Benchmark
+    public HttpRequest getRequest() {
+        return get.buildRequest().build();
+    }
+
+}
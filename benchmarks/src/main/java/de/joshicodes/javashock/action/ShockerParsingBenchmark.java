@@ -0,0 +1,128 @@
+package de.joshicodes.javashock.action;
+
+import com.google.gson.stream.JsonReader;
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.StartupMode;
+import de.joshicodes.javashock.object.DeviceHub;
+import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.testkit.MockOpenShockServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a {@code /1/shockers/own} response and swapping it into the cache, without any I/O. <br>
+ * Lives in the package of {@link StreamingRestAction} to reach the protected stream handler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShockerParsingBenchmark {
+
+    private static final int SHOCKERS_PER_HUB = 10;
+
+    @Param({"10", "100", "10000"})
+    public int shockers;
+
+    private JavaShock instance;
+    private GetShockerAction action;
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        instance = JavaShock.builder("benchmark")
+                .apiHost("http://127.0.0.1:1")
+                .startupMode(StartupMode.NONE)
+                .build();
+        action = new GetShockerAction(instance);
+        body = MockOpenShockServer.ownShockersBody(MockOpenShockServer.generateHubs(Math.max(1, shockers / SHOCKERS_PER_HUB), Math.min(shockers, SHOCKERS_PER_HUB)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        instance.close();
+    }
+
+    @Benchmark
+    public HashMap<DeviceHub, List<Shocker>> parse() throws IOException {
+        final HttpResponse<InputStream> response = new BodyResponse(new ByteArrayInputStream(body));
+        try (JsonReader reader = new JsonReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            return action.streamHandler.read(response, reader);
+        }
+    }
+
+    /**
+     * A successful response with a fixed body, as handed to the stream handler.
+     */
+    private record BodyResponse(InputStream body) implements HttpResponse<InputStream> {
+
+        private static final URI URL = URI.create("http://127.0.0.1/1/shockers/own");
+
+        @Override
+        public int statusCode() {
+            return 200;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(URL).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<InputStream>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(Map.of(), (name, value) -> true);
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return URL;
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+
+    }
+
+}
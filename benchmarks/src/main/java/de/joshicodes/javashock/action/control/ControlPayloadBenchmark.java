@@ -0,0 +1,70 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.StartupMode;
+import de.joshicodes.javashock.object.Shocker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serializing the body of a control request. <br>
+ * Lives in the package of {@link ControlRequestAction} to reach its protected body methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlPayloadBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int shockers;
+
+    private JavaShock instance;
+    private ControlRequestAction action;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        instance = JavaShock.builder("benchmark")
+                .apiHost("http://127.0.0.1:1")
+                .customName("Benchmark")
+                .startupMode(StartupMode.NONE)
+                .build();
+        action = new ControlRequestAction(instance, false);
+        for (int i = 0; i < shockers; i++) {
+            final Shocker shocker = new Shocker(instance, UUID.randomUUID().toString(), "Shocker " + i, i, "CaiXianlin", false, null);
+            action.addShockControl(shocker, new ControlData(ControlData.ControlType.VIBRATE, 50, 1000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        instance.close();
+    }
+
+    @Benchmark
+    public String prepareBody() {
+        return action.prepareBody();
+    }
+
+    @Benchmark
+    public byte[] prepareBodyBytes() {
+        return action.prepareBodyBytes();
+    }
+
+}
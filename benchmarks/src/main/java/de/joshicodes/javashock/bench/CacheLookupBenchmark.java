@@ -0,0 +1,113 @@
+package de.joshicodes.javashock.bench;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.StartupMode;
+import de.joshicodes.javashock.object.DeviceHub;
+import de.joshicodes.javashock.object.Shocker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cache lookups by id from many threads, with and without a concurrent writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheLookupBenchmark {
+
+    private static final int SHOCKERS_PER_HUB = 10;
+
+    @Param({"100", "10000"})
+    public int shockers;
+
+    private JavaShock instance;
+    private String[] shockerIds;
+    private String[] hubIds;
+    private DeviceHub writtenHub;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        instance = JavaShock.builder("benchmark")
+                .apiHost("http://127.0.0.1:1")
+                .startupMode(StartupMode.NONE)
+                .build();
+        final int hubs = Math.max(1, shockers / SHOCKERS_PER_HUB);
+        shockerIds = new String[hubs * SHOCKERS_PER_HUB];
+        hubIds = new String[hubs];
+        for (int h = 0; h < hubs; h++) {
+            final DeviceHub hub = new DeviceHub(instance, UUID.randomUUID().toString(), "Hub " + h);
+            final List<Shocker> list = new ArrayList<>(SHOCKERS_PER_HUB);
+            for (int s = 0; s < SHOCKERS_PER_HUB; s++) {
+                final Shocker shocker = new Shocker(instance, UUID.randomUUID().toString(), "Shocker " + s, s, "CaiXianlin", false, hub.getId());
+                list.add(shocker);
+                shockerIds[h * SHOCKERS_PER_HUB + s] = shocker.getId();
+            }
+            hubIds[h] = hub.getId();
+            instance.registerHub(hub, list);
+            writtenHub = hub;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        instance.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Shocker getCachedShocker() {
+        return instance.getCachedShocker(shockerIds[ThreadLocalRandom.current().nextInt(shockerIds.length)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public DeviceHub getHub() {
+        return instance.getHub(hubIds[ThreadLocalRandom.current().nextInt(hubIds.length)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(7)
+    public Shocker readWhileWriting() {
+        return instance.getCachedShocker(shockerIds[ThreadLocalRandom.current().nextInt(shockerIds.length)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void write() {
+        // a refresh parses new instances with the same ids, so the cache copies its snapshot;
+        // re-registering the cached instances would be skipped as unchanged
+        final DeviceHub hub = new DeviceHub(instance, writtenHub.getId(), writtenHub.getName());
+        final List<Shocker> list = new ArrayList<>(SHOCKERS_PER_HUB);
+        for (final Shocker shocker : writtenHub.getShockers()) {
+            list.add(new Shocker(instance, shocker.getId(), shocker.getName(), shocker.getRfId(), shocker.getModel(), shocker.isPaused(), hub.getId()));
+        }
+        instance.registerHub(hub, list);
+        writtenHub = hub;
+    }
+
+}
@@ -0,0 +1,97 @@
+package de.joshicodes.javashock.bench;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.StartupMode;
+import de.joshicodes.javashock.action.RestAction;
+import de.joshicodes.javashock.action.control.ControlData;
+import de.joshicodes.javashock.http.ExecutionMode;
+import de.joshicodes.javashock.http.RetryPolicy;
+import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.testkit.MockOpenShockServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full control request round trips against a {@link MockOpenShockServer} without latency. <br>
+ * Sample time mode reports the latency percentiles next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+
+    private static final int PIPELINED = 16;
+
+    @Param({"ASYNC", "PLATFORM_THREADS", "VIRTUAL_THREADS"})
+    public ExecutionMode executionMode;
+
+    private MockOpenShockServer server;
+    private JavaShock instance;
+    private Shocker shocker;
+    private ControlData data;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = MockOpenShockServer.builder().start();
+        instance = JavaShock.builder("benchmark")
+                .apiHost(server.getUrl())
+                .executionMode(executionMode)
+                .retryPolicy(RetryPolicy.NONE)
+                .startupMode(StartupMode.NONE)
+                .build();
+        shocker = new Shocker(instance, server.getShockerIds().get(0), "Shocker", 1, "CaiXianlin", false, null);
+        data = new ControlData(ControlData.ControlType.VIBRATE, 10, 300);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        instance.close();
+        server.close();
+    }
+
+    @Benchmark
+    public Boolean execute() {
+        return shocker.prepareControl(data).execute();
+    }
+
+    @Benchmark
+    public Boolean queue() {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        shocker.prepareControl(data).queue(result::complete, result::completeExceptionally);
+        return result.join();
+    }
+
+    /**
+     * Submits several requests before waiting for them, which shows how well each execution mode overlaps requests.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PIPELINED)
+    public void submitPipelined() {
+        final CompletableFuture<?>[] results = new CompletableFuture<?>[PIPELINED];
+        for (int i = 0; i < PIPELINED; i++) {
+            final RestAction<Boolean> action = shocker.prepareControl(data);
+            results[i] = action.submit();
+        }
+        CompletableFuture.allOf(results).join();
+    }
+
+}
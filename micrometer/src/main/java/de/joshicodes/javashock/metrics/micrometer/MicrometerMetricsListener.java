@@ -0,0 +1,142 @@
+package de.joshicodes.javashock.metrics.micrometer;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.cache.CacheStats;
+import de.joshicodes.javashock.metrics.MetricsListener;
+import de.joshicodes.javashock.metrics.RequestMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the metrics of a {@link JavaShock} instance in a Micrometer {@link MeterRegistry}.
+ * <br><br>
+ * Meters, all prefixed with {@code javashock.}:
+ * <ul>
+ *     <li>{@code requests} timer of the total time of a request, tagged with route, method, status and outcome</li>
+ *     <li>{@code requests.network} timer of the last attempt until the response headers arrived</li>
+ *     <li>{@code requests.inflight} gauge of the requests sent but not completed</li>
+ *     <li>{@code responses.size} summary of the response sizes in bytes, where known</li>
+ *     <li>{@code retries} counter of retried attempts, tagged with the reason</li>
+ *     <li>{@code ratelimited} counter of {@code 429} responses</li>
+ *     <li>{@code cache.hits}, {@code cache.misses}, {@code cache.hit.ratio} of the shocker cache</li>
+ *     <li>{@code control.batch.size} summary of the commands per coalesced control request</li>
+ * </ul>
+ * <pre>{@code
+ * JavaShock.builder(token).metrics(new MicrometerMetricsListener(registry)).build();
+ * }</pre>
+ */
+public class MicrometerMetricsListener implements MetricsListener {
+
+    private static final String PREFIX = "javashock.";
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final DistributionSummary batchSize;
+
+    public MicrometerMetricsListener(final MeterRegistry registry) {
+        this(registry, Tags.empty());
+    }
+
+    /**
+     * @param registry the registry
+     * @param tags     the tags added to every meter, e.g. to tell several instances apart
+     */
+    public MicrometerMetricsListener(final MeterRegistry registry, final Iterable<Tag> tags) {
+        if (registry == null)
+            throw new IllegalArgumentException("Registry cannot be null");
+        this.registry = registry;
+        this.tags = Tags.of(tags);
+        Gauge.builder(PREFIX + "requests.inflight", inFlight, AtomicInteger::get)
+                .description("Requests sent but not completed")
+                .tags(this.tags)
+                .register(registry);
+        this.batchSize = DistributionSummary.builder(PREFIX + "control.batch.size")
+                .description("Commands per coalesced control request")
+                .tags(this.tags)
+                .register(registry);
+    }
+
+    @Override
+    public void bind(final JavaShock instance) {
+        final CacheStats stats = instance.getCacheStats();
+        FunctionCounter.builder(PREFIX + "cache.hits", stats, CacheStats::getHits)
+                .tags(tags)
+                .register(registry);
+        FunctionCounter.builder(PREFIX + "cache.misses", stats, CacheStats::getMisses)
+                .tags(tags)
+                .register(registry);
+        Gauge.builder(PREFIX + "cache.hit.ratio", stats, CacheStats::getHitRatio)
+                .tags(tags)
+                .register(registry);
+    }
+
+    @Override
+    public void onRequestStart(final String route, final String method) {
+        inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onRequestEnd(final RequestMetrics metrics) {
+        inFlight.decrementAndGet();
+        final Tags requestTags = tags.and(
+                "route", String.valueOf(metrics.route()),
+                "method", metrics.method(),
+                "status", metrics.statusCode() < 0 ? "none" : String.valueOf(metrics.statusCode()),
+                "outcome", metrics.isSuccess() ? "success" : metrics.error() != null ? metrics.error().getClass().getSimpleName() : "error"
+        );
+        Timer.builder(PREFIX + "requests")
+                .tags(requestTags)
+                .register(registry)
+                .record(metrics.totalNanos(), TimeUnit.NANOSECONDS);
+        if (metrics.attempts() > 0) {
+            Timer.builder(PREFIX + "requests.network")
+                    .tags(requestTags)
+                    .register(registry)
+                    .record(metrics.networkNanos(), TimeUnit.NANOSECONDS);
+        }
+        if (metrics.responseBytes() >= 0) {
+            DistributionSummary.builder(PREFIX + "responses.size")
+                    .baseUnit("bytes")
+                    .tags(tags.and("route", String.valueOf(metrics.route())))
+                    .register(registry)
+                    .record(metrics.responseBytes());
+        }
+    }
+
+    @Override
+    public void onRetry(final String route, final String method, final int attempt, final int statusCode, final Throwable error) {
+        Counter.builder(PREFIX + "retries")
+                .tags(tags.and(
+                        "route", String.valueOf(route),
+                        "method", method,
+                        "reason", error != null ? error.getClass().getSimpleName() : String.valueOf(statusCode)
+                ))
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    public void onRateLimited(final String route, final Duration retryAfter) {
+        Counter.builder(PREFIX + "ratelimited")
+                .tags(tags.and("route", String.valueOf(route)))
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    public void onControlBatch(final int size) {
+        batchSize.record(size);
+    }
+
+}
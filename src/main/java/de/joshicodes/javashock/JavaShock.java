@@ -1,23 +1,68 @@
 package de.joshicodes.javashock;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonToken;
+import de.joshicodes.javashock.action.FutureAction;
+import de.joshicodes.javashock.action.GetHubShockersAction;
 import de.joshicodes.javashock.action.GetShockerAction;
 import de.joshicodes.javashock.action.RestAction;
 import de.joshicodes.javashock.action.SimpleAction;
+import de.joshicodes.javashock.action.StreamingRestAction;
+import de.joshicodes.javashock.action.control.CoalescingControlDispatcher;
+import de.joshicodes.javashock.action.control.ConflatingControlDispatcher;
+import de.joshicodes.javashock.action.control.ControlDispatcher;
+import de.joshicodes.javashock.action.control.HubLaneControlDispatcher;
+import de.joshicodes.javashock.action.control.pattern.PatternScheduler;
+import de.joshicodes.javashock.cache.CachePolicy;
+import de.joshicodes.javashock.cache.CacheSnapshot;
+import de.joshicodes.javashock.cache.CacheStats;
+import de.joshicodes.javashock.cache.ShockerCache;
+import de.joshicodes.javashock.circuit.CircuitBreakerRegistry;
+import de.joshicodes.javashock.http.ConcurrencyLimiter;
+import de.joshicodes.javashock.http.ExecutionMode;
+import de.joshicodes.javashock.http.HttpTransport;
+import de.joshicodes.javashock.http.RetryPolicy;
+import de.joshicodes.javashock.http.SingleFlight;
+import de.joshicodes.javashock.metrics.MetricsListener;
 import de.joshicodes.javashock.object.DeviceHub;
 import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.object.ShockerGroup;
+import de.joshicodes.javashock.ratelimit.RequestScheduler;
+import de.joshicodes.javashock.realtime.DeviceEventHandler;
+import de.joshicodes.javashock.realtime.RealtimeConnection;
+import de.joshicodes.javashock.util.JsonUtil;
+import de.joshicodes.javashock.util.NamedThreadFactory;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
-public class JavaShock {
+public class JavaShock implements AutoCloseable {
 
     public static final String DEFAULT_API_HOST = "https://api.openshock.app";
     public static final int MAX_SHOCK_DURATION = 30000;
+    /**
+     * The default max time of a request, including waiting for the rate limit and all retries.
+     */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
 
     @Getter
     private final String token;
@@ -28,26 +73,223 @@ public class JavaShock {
     @Getter
     private String customName = "JavaShock";
 
-    private final List<DeviceHub> cachedHubs;
+    /**
+     * The headers sent with every request, created once per instance.
+     */
+    @Getter
+    private final Map<String, String> defaultHeaders;
+
+    /**
+     * The transport shared by all requests of this instance.
+     */
+    @Getter
+    private final HttpTransport transport;
+    private final boolean ownsTransport;
+
+    @Getter
+    private final ExecutionMode executionMode;
+    /**
+     * The executor for blocking sends and callbacks, null if callbacks run on the transport threads.
+     */
+    @Getter
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    /**
+     * Limits the requests in flight, null if unlimited.
+     */
+    @Getter
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * Handles control commands for single shockers, null if they are sent directly.
+     */
+    @Getter
+    private final ControlDispatcher controlDispatcher;
+    /**
+     * Orders control commands per hub, null if disabled. Part of the {@link #getControlDispatcher()} chain.
+     */
+    @Getter
+    private final HubLaneControlDispatcher hubLanes;
+
+    /**
+     * The retry policy used by all requests that do not set their own.
+     */
+    @Getter
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * The timeout of all requests that do not set their own, null if they may take as long as needed.
+     */
+    @Getter
+    private final Duration timeout;
+
+    /**
+     * The circuit breakers per route and hub, null if disabled.
+     */
+    @Getter
+    private final CircuitBreakerRegistry circuitBreakers;
+
+    /**
+     * Shares concurrent identical GET requests, null if disabled.
+     */
+    @Getter
+    private final SingleFlight singleFlight;
+
+    /**
+     * Applies rate limits and priorities to all requests.
+     */
+    @Getter
+    private final RequestScheduler requestScheduler;
+
+    /**
+     * Receives the metrics of this instance, {@link MetricsListener#NOOP} if none is configured.
+     */
+    @Getter
+    private final MetricsListener metrics;
+
+    /**
+     * The connection to the user hub that control commands are sent over, null if disabled.
+     */
+    @Getter
+    private final RealtimeConnection realtime;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService bodyReader;
+    private PatternScheduler patternScheduler;
+
+    /**
+     * The cache of hubs and shockers of this instance.
+     */
+    @Getter
+    private final ShockerCache cache;
+    private final AtomicReference<CompletableFuture<HashMap<DeviceHub, List<Shocker>>>> refresh = new AtomicReference<>();
+
+    /**
+     * The file the cache is saved to, null if disabled.
+     *
+     * @see JavaShockBuilder#cacheSnapshot(Path)
+     */
+    @Getter
+    private final Path snapshotFile;
+    /**
+     * If the cache holds a full list, from the API or a snapshot. Only then it is saved on shutdown.
+     */
+    private volatile boolean cacheLoaded;
+    private final Object snapshotLock = new Object();
+
+    @Getter
+    private final StartupMode startupMode;
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private final AtomicBoolean loadStarted = new AtomicBoolean();
 
     public JavaShock(final String token) {
         this(token, DEFAULT_API_HOST);
     }
 
     public JavaShock(final String token, final String apiHost) {
-        this.token = token;
-        this.apiHost = apiHost;
+        this(builder(token).apiHost(apiHost).startupMode(StartupMode.EAGER));
+    }
+
+    protected JavaShock(final JavaShockBuilder builder) {
+        this.token = builder.token;
+        this.apiHost = builder.apiHost;
+        this.customName = builder.customName;
+        this.defaultHeaders = Map.of(
+                "accept", "application/json",
+                "OpenShockToken", token
+        );
+
+        this.ownsTransport = builder.transport == null;
+        this.transport = ownsTransport ? HttpTransport.createDefault() : builder.transport;
 
-        this.cachedHubs = new ArrayList<>();
+        this.executionMode = builder.executionMode;
+        this.ownsExecutor = builder.executor == null;
+        this.executor = ownsExecutor ? executionMode.createExecutor() : builder.executor;
+        this.concurrencyLimiter = builder.maxConcurrentRequests > 0 ? new ConcurrencyLimiter(builder.maxConcurrentRequests) : null;
 
-        // Retrieve all shockers and cache them
-        retrieveAllShockers().queue();
+        this.retryPolicy = builder.retryPolicy;
+        this.timeout = builder.timeout;
+        this.singleFlight = builder.deduplicateRequests ? new SingleFlight() : null;
+        this.requestScheduler = new RequestScheduler(this::getScheduler, builder.rateLimits, builder.defaultRateLimit);
+
+        // commands are conflated first, then ordered per hub and coalesced last
+        ControlDispatcher dispatcher = builder.coalescingWindow != null
+                ? new CoalescingControlDispatcher(this, builder.coalescingWindow, builder.coalescingMaxBatchSize)
+                : null;
+        this.hubLanes = builder.hubLanes
+                ? new HubLaneControlDispatcher(dispatcher != null ? dispatcher : ControlDispatcher.direct(this), executor)
+                : null;
+        if (hubLanes != null) dispatcher = hubLanes;
+        if (builder.conflation) {
+            dispatcher = new ConflatingControlDispatcher(dispatcher != null ? dispatcher : ControlDispatcher.direct(this));
+        }
+        this.controlDispatcher = dispatcher;
+
+        this.cache = new ShockerCache(builder.cachePolicy, this::refreshAhead);
+
+        this.metrics = builder.metrics;
+        this.circuitBreakers = builder.circuitBreakerPolicy != null
+                ? new CircuitBreakerRegistry(builder.circuitBreakerPolicy, (breaker, state) -> metrics.onCircuitStateChange(breaker.getName(), state))
+                : null;
+        metrics.bind(this);
+
+        this.realtime = builder.realtime
+                ? new RealtimeConnection(this, builder.realtimeUrl != null ? URI.create(builder.realtimeUrl) : RealtimeConnection.getHubUri(apiHost))
+                : null;
+
+        this.snapshotFile = builder.snapshotFile;
+        final boolean restored = snapshotFile != null && restoreSnapshot(builder.snapshotMaxAge);
+
+        this.startupMode = builder.startupMode;
+        if (restored && startupMode != StartupMode.NONE) {
+            // start with the snapshot and revalidate it in the background
+            loadStarted.set(true);
+            ready.complete(null);
+            refreshCache();
+        } else {
+            switch (startupMode) {
+                // failures are reported through ready()
+                case EAGER -> load().exceptionally(e -> null).join();
+                case EAGER_ASYNC -> load();
+                case NONE -> ready.complete(null);
+            }
+        }
+
+        final Duration refreshInterval = builder.cachePolicy.getRefreshInterval();
+        if (refreshInterval != null) {
+            getScheduler().scheduleWithFixedDelay(
+                    () -> {
+                        // while connected to the hub, device events keep the cache up to date
+                        if (realtime == null || !realtime.isConnected()) refreshCache();
+                    },
+                    refreshInterval.toNanos(),
+                    refreshInterval.toNanos(),
+                    TimeUnit.NANOSECONDS
+            );
+        }
+
+        // connected last, device events must not reach an instance that is not fully constructed
+        if (realtime != null) {
+            new DeviceEventHandler(this).register(realtime);
+            realtime.connect();
+        }
 
     }
 
+    /**
+     * Creates a new builder to configure a JavaShock instance.
+     *
+     * @param token The API token
+     * @return The builder
+     */
+    public static JavaShockBuilder builder(final String token) {
+        return new JavaShockBuilder(token);
+    }
+
     /**
      * Retrieves all shockers and their hubs from the API.
      * They will automatically be cached.
+     * The request fails if the API does not answer with them, e.g. on an invalid token, and the cache is left as it is.
      *
      * @return The RestAction to queue or execute
      */
@@ -55,6 +297,140 @@ public class JavaShock {
         return new GetShockerAction(this);
     }
 
+    /**
+     * Returns a future that completes once the initial load of the cache is done. <br>
+     * It completes exceptionally if the load failed.
+     * With {@link StartupMode#LAZY} it completes after the first cache miss triggered the load,
+     * with {@link StartupMode#NONE} it is completed immediately.
+     *
+     * @return The future
+     * @see StartupMode
+     */
+    public CompletableFuture<Void> ready() {
+        return ready.copy();
+    }
+
+    /**
+     * Starts the initial load of the cache, if it was not started yet.
+     */
+    private CompletableFuture<Void> load() {
+        if (loadStarted.compareAndSet(false, true)) {
+            refreshCache().whenComplete((result, error) -> {
+                if (error == null) ready.complete(null);
+                else ready.completeExceptionally(error);
+            });
+        }
+        return ready;
+    }
+
+    /**
+     * Starts the initial load on a cache miss in {@link StartupMode#LAZY}.
+     *
+     * @return true if the initial load is still running
+     */
+    private boolean loadOnMiss() {
+        if (ready.isDone()) return false;
+        if (startupMode == StartupMode.LAZY) load();
+        return loadStarted.get();
+    }
+
+    /**
+     * Refreshes all cached hubs and shockers in the background. <br>
+     * The new hubs and shockers replace the cached ones at once, once the request completed.
+     * If a refresh is already running, its future is returned instead of starting a new one.
+     *
+     * @return A future that completes when the refresh is done
+     * @see CachePolicy#getRefreshInterval()
+     */
+    public CompletableFuture<HashMap<DeviceHub, List<Shocker>>> refreshCache() {
+        final CompletableFuture<HashMap<DeviceHub, List<Shocker>>> running = refresh.get();
+        if (running != null) return running;
+        final CompletableFuture<HashMap<DeviceHub, List<Shocker>>> future = new CompletableFuture<>();
+        if (!refresh.compareAndSet(null, future)) return refresh.get();
+        retrieveAllShockers().submit().whenComplete((result, error) -> {
+            refresh.compareAndSet(future, null);
+            cache.getStats().recordRefresh(error == null);
+            if (error == null) {
+                cacheLoaded = true;
+                saveSnapshot();
+            }
+            if (error == null) future.complete(result);
+            else future.completeExceptionally(error);
+        });
+        return future;
+    }
+
+    /**
+     * Refreshes the shockers of a single hub, without downloading all hubs. <br>
+     * If the hub is not cached, all hubs are refreshed instead.
+     *
+     * @param hubId the id of the hub
+     * @return A future that completes with the shockers of the hub, or null if the request failed
+     */
+    public CompletableFuture<List<Shocker>> refreshHub(final String hubId) {
+        final DeviceHub hub = cache.getHub(hubId);
+        if (hub == null) {
+            return refreshCache().thenApply(result -> {
+                final DeviceHub refreshed = cache.getHub(hubId);
+                return refreshed == null ? List.of() : List.copyOf(refreshed.getShockers());
+            });
+        }
+        return new GetHubShockersAction(this, hub).submit();
+    }
+
+    /**
+     * Loads the snapshot file into the cache, if it exists and belongs to this account.
+     *
+     * @return true if the snapshot was loaded
+     */
+    private boolean restoreSnapshot(final Duration maxAge) {
+        if (!Files.isRegularFile(snapshotFile)) return false;
+        final CacheSnapshot snapshot;
+        try {
+            snapshot = CacheSnapshot.read(this, snapshotFile);
+        } catch (IOException e) {
+            // a broken or outdated snapshot only costs the warm start
+            return false;
+        }
+        if (!snapshot.getOwner().equals(CacheSnapshot.getOwner(this))) return false;
+        if (maxAge != null && snapshot.getSavedAt().plus(maxAge).isBefore(Instant.now())) return false;
+        cache.replaceAll(snapshot.getHubs());
+        cache.setValidator(GetShockerAction.ENDPOINT, snapshot.getValidator());
+        cacheLoaded = true;
+        return true;
+    }
+
+    /**
+     * Saves the cache to the snapshot file, if one is configured. Failures are ignored, the next save tries again.
+     */
+    private void saveSnapshot() {
+        if (snapshotFile == null) return;
+        synchronized (snapshotLock) {
+            try {
+                CacheSnapshot.save(this, snapshotFile);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Returns the hit, miss and refresh counters of the cache.
+     *
+     * @return The stats
+     */
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    private void refreshAhead(final Shocker shocker) {
+        // shared shockers are not part of /1/shockers/own
+        if (cache.getHub(shocker.getHubId()) != null) {
+            refreshCache();
+        } else {
+            retrieveShocker(shocker.getId()).queue(null, null);
+        }
+    }
+
     /**
      * Caches a hub with its shockers.
      * <b>Does NOT create a new hub or shocker for the user.</b>
@@ -64,8 +440,7 @@ public class JavaShock {
      * @param shockers The shockers to cache
      */
     public void registerHub(final DeviceHub hub, final List<Shocker> shockers) {
-        hub.getShockers().addAll(shockers);
-        cachedHubs.add(hub);
+        cache.putHub(hub, shockers);
     }
 
     /**
@@ -73,20 +448,16 @@ public class JavaShock {
      * <b>Does NOT create a new hub or shocker for the user.</b>
      * This Method is designed to be used internally, use with caution.
      *
-     * @param hub     The hub to cache the shocker in
+     * @param hub     The hub to cache the shocker in, can be null if the hub is not cached
      * @param shocker The shocker to cache
      */
     public void registerShocker(final DeviceHub hub, final Shocker shocker) {
-        hub.getShockers().removeIf(s -> s.getId().equals(shocker.getId()));
-        hub.getShockers().add(shocker);
-        // replace hub in cachedHubs
-        cachedHubs.removeIf(h -> h.getId().equals(hub.getId()));
-        cachedHubs.add(hub);
+        cache.putShocker(hub, shocker);
     }
 
     /**
      * Retrieves a shocker by its ID.
-     * If the shocker is not cached, it will be fetched from the API.
+     * If the shocker is not cached or expired, it will be fetched from the API.
      *
      * @param shockerId The ID of the shocker
      * @return The shocker or null if it does not exist
@@ -94,27 +465,21 @@ public class JavaShock {
      * @see #retrieveShocker(String) #retrieveShocker(String) - to always fetch the shocker from the API
      */
     public RestAction<Shocker> getShocker(final String shockerId) {
-        if (cachedHubs
-                .stream()
-                .anyMatch(hub -> hub.getShockers().stream().anyMatch(shock -> shock.getId().equals(shockerId)))
-        ) {
-            return new SimpleAction<>(
-                    this,
-                    () -> cachedHubs
-                            .stream()
-                            .map(DeviceHub::getShockers)
-                            .flatMap(List::stream)
-                            .filter(shocker -> shocker.getId().equals(shockerId))
-                            .findFirst()
-                            .orElse(null)
-            );
+        final Shocker cached = cache.getShocker(shockerId);
+        if (cached != null) {
+            return new SimpleAction<>(this, () -> cached);
+        }
+        if (loadOnMiss()) {
+            // wait for the initial load, the shocker might be part of it
+            return new FutureAction<>(this, () -> ready.handle((v, e) -> cache.getShocker(shockerId))
+                    .thenCompose(shocker -> shocker != null ? CompletableFuture.completedFuture(shocker) : retrieveShocker(shockerId).submit()));
         }
         return retrieveShocker(shockerId);
     }
 
     /**
      * Retrieves a shocker by its ID.
-     * If the shocker is not cached, null will be returned.
+     * If the shocker is not cached or expired, null will be returned.
      *
      * @param shockerId The ID of the shocker
      * @return The shocker or null if it does not exist
@@ -122,7 +487,40 @@ public class JavaShock {
      * @see #retrieveShocker(String)  - to always fetch the shocker from the API
      */
     public Shocker getCachedShocker(final String shockerId) {
-        return cachedHubs.stream().map(DeviceHub::getShockers).flatMap(List::stream).filter(shocker -> shocker.getId().equals(shockerId)).findFirst().orElse(null);
+        final Shocker shocker = cache.getShocker(shockerId);
+        if (shocker == null) loadOnMiss();
+        return shocker;
+    }
+
+    /**
+     * Returns all cached shockers, including shared shockers that were fetched by their ID.
+     *
+     * @return An unmodifiable view of the cached shockers
+     */
+    public Collection<Shocker> getCachedShockers() {
+        return cache.getShockers();
+    }
+
+    /**
+     * Creates a group to control the given shockers together.
+     *
+     * @param shockers the members
+     * @return the group
+     */
+    public ShockerGroup createGroup(final Collection<Shocker> shockers) {
+        return new ShockerGroup(this, shockers);
+    }
+
+    /**
+     * Creates a group of all cached shockers that match the filter.
+     *
+     * @param filter the filter, e.g. {@code shocker -> true} for all shockers
+     * @return the group
+     */
+    public ShockerGroup createGroup(final Predicate<Shocker> filter) {
+        if (filter == null)
+            throw new IllegalArgumentException("Filter cannot be null");
+        return new ShockerGroup(this, cache.getShockers().stream().filter(filter).toList());
     }
 
     /**
@@ -136,18 +534,22 @@ public class JavaShock {
      * @see #getCachedShocker(String) - to fetch the shocker from the cache
      */
     public RestAction<Shocker> retrieveShocker(final String shockerId) {
-        return new RestAction<>(
+        return new StreamingRestAction<>(
                 this,
                 "/1/shockers/" + shockerId,
                 "GET",
-                resp -> {
-                    final JsonElement element = resp.getAsJsonElement();
-                    if (element == null) return null;
-                    if (!element.isJsonObject()) return null;
-                    final JsonObject object = element.getAsJsonObject();
-                    if (!object.has("data")) return null;
-                    final JsonObject data = object.getAsJsonObject("data");
-                    return Shocker.fromJson(this, data);
+                (response, reader) -> {
+                    if (response.statusCode() != 200) return null;
+                    if (!JsonUtil.beginObject(reader)) return null;
+                    Shocker shocker = null;
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                            shocker = Shocker.fromJson(this, reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    return shocker;
                 }
         );
     }
@@ -162,18 +564,107 @@ public class JavaShock {
      * @return The hub or null if it does not exist
      */
     public DeviceHub getHub(String hubId) {
-        if (
-                cachedHubs
-                        .stream()
-                        .anyMatch(hub -> hub.getId().equals(hubId))
-        ) {
-            return cachedHubs
-                    .stream()
-                    .filter(hub -> hub.getId().equals(hubId))
-                    .findFirst()
-                    .orElse(null);
-        }
-        return null;
+        final DeviceHub hub = cache.getHub(hubId);
+        if (hub == null) loadOnMiss();
+        return hub;
+    }
+
+    /**
+     * Returns all cached hubs.
+     *
+     * @return An unmodifiable view of the cached hubs
+     */
+    public Collection<DeviceHub> getCachedHubs() {
+        return cache.getHubs();
+    }
+
+    /**
+     * Returns the scheduler used for delayed work of this instance, like flushing coalesced commands or waiting for rate limits. <br>
+     * It is created on first use and runs a single daemon thread, so scheduled tasks should be short.
+     *
+     * @return the scheduler
+     */
+    public synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            final ScheduledThreadPoolExecutor service = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("JavaShock-Scheduler"));
+            // every request with a deadline schedules a timeout that is usually cancelled long before it is due
+            service.setRemoveOnCancelPolicy(true);
+            scheduler = service;
+        }
+        return scheduler;
+    }
+
+    /**
+     * Returns the executor that reads streamed response bodies. <br>
+     * Reading blocks until the body arrived, so it must not run on the transport threads that deliver it.
+     * This is the {@link #getExecutor() executor} of this instance, or a dedicated pool created on first use if callbacks run on the transport threads.
+     *
+     * @return the executor
+     */
+    public synchronized Executor getBodyReader() {
+        if (executor != null) return executor;
+        if (bodyReader == null) {
+            bodyReader = Executors.newCachedThreadPool(new NamedThreadFactory("JavaShock-Reader"));
+        }
+        return bodyReader;
+    }
+
+    /**
+     * Returns the scheduler that plays patterns on the shockers of this instance. <br>
+     * It is created on first use and runs on {@link #getScheduler()}.
+     *
+     * @return the pattern scheduler
+     * @see Shocker#play(de.joshicodes.javashock.action.control.pattern.Pattern)
+     */
+    public synchronized PatternScheduler getPatternScheduler() {
+        if (patternScheduler == null) {
+            patternScheduler = new PatternScheduler(this);
+        }
+        return patternScheduler;
+    }
+
+    /**
+     * Releases all resources of this instance. <br>
+     * The transport and executor are only closed if they were created by this instance.
+     * Requests must not be executed after this method was called.
+     *
+     * @see #close()
+     */
+    public void shutdown() {
+        if (cacheLoaded) {
+            saveSnapshot();
+        }
+        if (controlDispatcher != null) {
+            controlDispatcher.close();
+        }
+        if (realtime != null) {
+            realtime.close();
+        }
+        synchronized (this) {
+            if (patternScheduler != null) {
+                patternScheduler.close();
+            }
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+            }
+            if (bodyReader != null) {
+                bodyReader.shutdown();
+            }
+        }
+        if (ownsExecutor && executor instanceof ExecutorService service) {
+            service.shutdown();
+        }
+        if (ownsTransport) {
+            transport.close();
+        }
+    }
+
+    /**
+     * Same as {@link #shutdown()}, allows the use in try-with-resources.
+     */
+    @Override
+    public void close() {
+        shutdown();
     }
 
 }
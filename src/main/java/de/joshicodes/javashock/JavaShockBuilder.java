@@ -0,0 +1,364 @@
+package de.joshicodes.javashock;
+
+import de.joshicodes.javashock.cache.CachePolicy;
+import de.joshicodes.javashock.circuit.CircuitBreakerPolicy;
+import de.joshicodes.javashock.http.ExecutionMode;
+import de.joshicodes.javashock.http.HttpTransport;
+import de.joshicodes.javashock.http.RetryPolicy;
+import de.joshicodes.javashock.metrics.MetricsListener;
+import de.joshicodes.javashock.ratelimit.RateLimiter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Builder to configure and create a {@link JavaShock} instance.
+ *
+ * @see JavaShock#builder(String)
+ */
+public class JavaShockBuilder {
+
+    final String token;
+    String apiHost = JavaShock.DEFAULT_API_HOST;
+    String customName = "JavaShock";
+    HttpTransport transport;
+    ExecutionMode executionMode = ExecutionMode.ASYNC;
+    Executor executor;
+    int maxConcurrentRequests;
+    Duration coalescingWindow;
+    int coalescingMaxBatchSize;
+    boolean conflation;
+    boolean hubLanes;
+    final Map<String, RateLimiter> rateLimits = new LinkedHashMap<>();
+    RateLimiter defaultRateLimit;
+    CachePolicy cachePolicy = CachePolicy.DEFAULT;
+    StartupMode startupMode = StartupMode.EAGER_ASYNC;
+    boolean deduplicateRequests = true;
+    RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    Duration timeout = JavaShock.DEFAULT_TIMEOUT;
+    CircuitBreakerPolicy circuitBreakerPolicy;
+    MetricsListener metrics = MetricsListener.NOOP;
+    boolean realtime;
+    String realtimeUrl;
+    Path snapshotFile;
+    Duration snapshotMaxAge;
+
+    JavaShockBuilder(final String token) {
+        if (token == null)
+            throw new IllegalArgumentException("Token cannot be null");
+        this.token = token;
+    }
+
+    /**
+     * Sets the API host to use.
+     *
+     * @param apiHost the API host, defaults to {@link JavaShock#DEFAULT_API_HOST}
+     * @return this builder
+     */
+    public JavaShockBuilder apiHost(final String apiHost) {
+        if (apiHost == null)
+            throw new IllegalArgumentException("API host cannot be null");
+        this.apiHost = apiHost;
+        return this;
+    }
+
+    /**
+     * Sets the name that is shown in the OpenShock logs for control requests.
+     *
+     * @param customName the custom name
+     * @return this builder
+     */
+    public JavaShockBuilder customName(final String customName) {
+        this.customName = customName;
+        return this;
+    }
+
+    /**
+     * Sets the transport used for all requests. <br>
+     * A transport passed here is <b>not</b> closed by {@link JavaShock#close()}, so it can be shared between instances.
+     * If none is set, a default transport is created and owned by the instance.
+     *
+     * @param transport the transport
+     * @return this builder
+     */
+    public JavaShockBuilder transport(final HttpTransport transport) {
+        this.transport = transport;
+        return this;
+    }
+
+    /**
+     * Sets how requests are sent and on which threads callbacks run.
+     *
+     * @param executionMode the execution mode, defaults to {@link ExecutionMode#ASYNC}
+     * @return this builder
+     */
+    public JavaShockBuilder executionMode(final ExecutionMode executionMode) {
+        if (executionMode == null)
+            throw new IllegalArgumentException("Execution mode cannot be null");
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    /**
+     * Overrides the executor used for blocking sends and callbacks. <br>
+     * The executor is not shut down by {@link JavaShock#close()}.
+     *
+     * @param executor the executor, or null to use the default of the {@link ExecutionMode}
+     * @return this builder
+     * @see #executionMode(ExecutionMode)
+     */
+    public JavaShockBuilder executor(final Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Limits how many requests can be in flight at the same time. Further requests wait until a slot is free.
+     *
+     * @param maxConcurrentRequests the limit, or 0 for no limit (default)
+     * @return this builder
+     */
+    public JavaShockBuilder maxConcurrentRequests(final int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 0)
+            throw new IllegalArgumentException("Max concurrent requests cannot be negative");
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        return this;
+    }
+
+    /**
+     * Enables coalescing of control commands. <br>
+     * Commands for single shockers issued within the window are sent as one request,
+     * which reduces the request rate when many shockers are controlled at once.
+     * Each command is delayed by at most the window.
+     *
+     * @param window       how long commands are buffered, e.g. 5 to 20 ms
+     * @param maxBatchSize the max number of commands per request, a full batch is sent immediately
+     * @return this builder
+     * @see de.joshicodes.javashock.action.control.CoalescingControlDispatcher
+     */
+    public JavaShockBuilder controlCoalescing(final Duration window, final int maxBatchSize) {
+        if (window == null || window.isNegative() || window.isZero())
+            throw new IllegalArgumentException("Window must be positive");
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("Max batch size must be at least 1");
+        this.coalescingWindow = window;
+        this.coalescingMaxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * Enables conflation of control commands. <br>
+     * Only one command per shocker is in flight, a newer command replaces one that is still waiting
+     * and a stop discards the waiting one and is sent right after the command in flight. Replaced commands complete with false.
+     * Can be combined with {@link #controlCoalescing(Duration, int)}, commands are conflated before they are coalesced.
+     *
+     * @param conflation true to conflate commands, disabled by default
+     * @return this builder
+     * @see de.joshicodes.javashock.action.control.ConflatingControlDispatcher
+     */
+    public JavaShockBuilder controlConflation(final boolean conflation) {
+        this.conflation = conflation;
+        return this;
+    }
+
+    /**
+     * Sends control commands in order per hub. <br>
+     * Every hub has one command in flight, the next one is sent when it completed, while different hubs are controlled in parallel.
+     * Commands pass the hub lanes after conflation and before coalescing.
+     *
+     * @param hubLanes true to order commands per hub, disabled by default
+     * @return this builder
+     * @see de.joshicodes.javashock.action.control.HubLaneControlDispatcher
+     */
+    public JavaShockBuilder controlHubLanes(final boolean hubLanes) {
+        this.hubLanes = hubLanes;
+        return this;
+    }
+
+    /**
+     * Enables circuit breakers per route and per hub. <br>
+     * When too many requests of a route or to a hub fail, further requests fail at once with a
+     * {@link de.joshicodes.javashock.circuit.CircuitOpenException} instead of being sent and retried, until trial requests succeed again.
+     *
+     * @param policy the policy, e.g. {@link CircuitBreakerPolicy#DEFAULT}, or null to disable circuit breakers (default)
+     * @return this builder
+     * @see de.joshicodes.javashock.object.DeviceHub#getHealth()
+     */
+    public JavaShockBuilder circuitBreaker(final CircuitBreakerPolicy policy) {
+        this.circuitBreakerPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Limits the request rate on a route. Waiting requests are sent by their {@link de.joshicodes.javashock.ratelimit.RequestPriority}.
+     *
+     * @param route   the route, e.g. {@code /2/shockers/control} or {@code /1/shockers/{id}}
+     * @param limiter the limiter, e.g. a {@link de.joshicodes.javashock.ratelimit.TokenBucket}
+     * @return this builder
+     * @see de.joshicodes.javashock.ratelimit.RequestScheduler
+     */
+    public JavaShockBuilder rateLimit(final String route, final RateLimiter limiter) {
+        if (route == null || limiter == null)
+            throw new IllegalArgumentException("Route and limiter cannot be null");
+        this.rateLimits.put(route, limiter);
+        return this;
+    }
+
+    /**
+     * Limits the request rate of all routes without their own limit. The limit is shared between these routes.
+     *
+     * @param limiter the limiter, or null for no limit (default)
+     * @return this builder
+     * @see #rateLimit(String, RateLimiter)
+     */
+    public JavaShockBuilder defaultRateLimit(final RateLimiter limiter) {
+        this.defaultRateLimit = limiter;
+        return this;
+    }
+
+    /**
+     * Sets the expiry, refresh and size limit of the shocker cache.
+     *
+     * @param cachePolicy the policy, defaults to {@link CachePolicy#DEFAULT}
+     * @return this builder
+     */
+    public JavaShockBuilder cachePolicy(final CachePolicy cachePolicy) {
+        if (cachePolicy == null)
+            throw new IllegalArgumentException("Cache policy cannot be null");
+        this.cachePolicy = cachePolicy;
+        return this;
+    }
+
+    /**
+     * Saves the cache to a local file after every full refresh and on shutdown, and starts with it on the next start. <br>
+     * If a snapshot of the same account exists, the instance is ready at once and the cache is refreshed in the background,
+     * so shockers can be resolved even while the API is unreachable.
+     *
+     * @param file the file, created if missing
+     * @return this builder
+     * @see de.joshicodes.javashock.cache.CacheSnapshot
+     */
+    public JavaShockBuilder cacheSnapshot(final Path file) {
+        return cacheSnapshot(file, null);
+    }
+
+    /**
+     * @param file   the file, created if missing
+     * @param maxAge snapshots older than this are not loaded, null to load any
+     * @return this builder
+     * @see #cacheSnapshot(Path)
+     */
+    public JavaShockBuilder cacheSnapshot(final Path file, final Duration maxAge) {
+        if (file == null)
+            throw new IllegalArgumentException("File cannot be null");
+        if (maxAge != null && (maxAge.isNegative() || maxAge.isZero()))
+            throw new IllegalArgumentException("Max age must be positive");
+        this.snapshotFile = file;
+        this.snapshotMaxAge = maxAge;
+        return this;
+    }
+
+    /**
+     * Sets when the hubs and shockers are loaded into the cache.
+     *
+     * @param startupMode the startup mode, defaults to {@link StartupMode#EAGER_ASYNC}
+     * @return this builder
+     * @see JavaShock#ready()
+     */
+    public JavaShockBuilder startupMode(final StartupMode startupMode) {
+        if (startupMode == null)
+            throw new IllegalArgumentException("Startup mode cannot be null");
+        this.startupMode = startupMode;
+        return this;
+    }
+
+    /**
+     * Sets if concurrent identical {@code GET} requests share one request. Enabled by default.
+     *
+     * @param deduplicateRequests true to share identical requests
+     * @return this builder
+     * @see de.joshicodes.javashock.http.SingleFlight
+     */
+    public JavaShockBuilder deduplicateRequests(final boolean deduplicateRequests) {
+        this.deduplicateRequests = deduplicateRequests;
+        return this;
+    }
+
+    /**
+     * Sets when failed requests are retried. Can be overridden per request with
+     * {@link de.joshicodes.javashock.action.RestAction#retryPolicy(RetryPolicy)}.
+     *
+     * @param retryPolicy the retry policy, defaults to {@link RetryPolicy#DEFAULT}
+     * @return this builder
+     */
+    public JavaShockBuilder retryPolicy(final RetryPolicy retryPolicy) {
+        if (retryPolicy == null)
+            throw new IllegalArgumentException("Retry policy cannot be null");
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the max time from sending a request until its result, including waiting for the rate limit and all retries. <br>
+     * Requests that are not sent by then are dropped, so a control command is never delivered late.
+     * Can be overridden per request with {@link de.joshicodes.javashock.action.RestAction#timeout(Duration)}.
+     *
+     * @param timeout the timeout, defaults to {@link JavaShock#DEFAULT_TIMEOUT}, null to wait as long as needed
+     * @return this builder
+     * @see de.joshicodes.javashock.http.Deadline
+     */
+    public JavaShockBuilder timeout(final Duration timeout) {
+        if (timeout != null && (timeout.isNegative() || timeout.isZero()))
+            throw new IllegalArgumentException("Timeout must be positive");
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Sets the listener that receives the metrics of all requests, the cache and coalesced batches.
+     *
+     * @param metrics the listener, defaults to {@link MetricsListener#NOOP}
+     * @return this builder
+     */
+    public JavaShockBuilder metrics(final MetricsListener metrics) {
+        if (metrics == null)
+            throw new IllegalArgumentException("Metrics listener cannot be null");
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Sets if control commands are sent over a persistent WebSocket connection to the OpenShock user hub. <br>
+     * The connection is opened in the background and reopened when lost, while it is not connected commands are sent over HTTP.
+     *
+     * @param realtime true to send control commands over the hub, disabled by default
+     * @return this builder
+     * @see de.joshicodes.javashock.realtime.RealtimeConnection
+     */
+    public JavaShockBuilder realtime(final boolean realtime) {
+        this.realtime = realtime;
+        return this;
+    }
+
+    /**
+     * Sets the URL of the user hub and enables {@link #realtime(boolean)}, e.g. to connect to a local stand-in.
+     *
+     * @param realtimeUrl the {@code ws://} or {@code wss://} URL, defaults to the hub of the API host
+     * @return this builder
+     */
+    public JavaShockBuilder realtimeUrl(final String realtimeUrl) {
+        if (realtimeUrl == null)
+            throw new IllegalArgumentException("Realtime URL cannot be null");
+        this.realtimeUrl = realtimeUrl;
+        this.realtime = true;
+        return this;
+    }
+
+    public JavaShock build() {
+        return new JavaShock(this);
+    }
+
+}
@@ -0,0 +1,34 @@
+package de.joshicodes.javashock;
+
+/**
+ * Defines when a JavaShock instance loads its hubs and shockers into the cache.
+ *
+ * @see JavaShockBuilder#startupMode(StartupMode)
+ * @see JavaShock#ready()
+ */
+public enum StartupMode {
+
+    /**
+     * The cache is loaded before the instance is returned, which blocks the caller for a round-trip. <br>
+     * Used by the constructors of {@link JavaShock}.
+     */
+    EAGER,
+
+    /**
+     * The cache is loaded in the background, the instance is returned immediately.
+     * {@link JavaShock#ready()} completes once the cache is loaded.
+     */
+    EAGER_ASYNC,
+
+    /**
+     * The cache is loaded on the first cache miss.
+     */
+    LAZY,
+
+    /**
+     * The cache is not loaded, shockers are only fetched by their id.
+     * Use {@link JavaShock#refreshCache()} to load it manually.
+     */
+    NONE
+
+}
@@ -0,0 +1,31 @@
+package de.joshicodes.javashock.action;
+
+import de.joshicodes.javashock.JavaShock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Completes with the future returned by the supplier, used to compose other actions.
+ *
+ * @param <T>
+ */
+public class FutureAction<T> extends RestAction<T> {
+
+    final Supplier<CompletableFuture<T>> supplier;
+
+    public FutureAction(final JavaShock instance, final Supplier<CompletableFuture<T>> supplier) {
+        super(instance, null, null, null);
+        this.supplier = supplier;
+    }
+
+    @Override
+    public CompletableFuture<T> submit() {
+        try {
+            return supplier.get();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package de.joshicodes.javashock.action;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.cache.CacheValidator;
+import de.joshicodes.javashock.cache.ShockerCache;
+import de.joshicodes.javashock.object.DeviceHub;
+import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.ratelimit.RequestPriority;
+import de.joshicodes.javashock.util.JsonUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retrieves the shockers of a single hub and replaces them in the cache,
+ * so a change of one hub does not require downloading all of them. <br>
+ * Like {@link GetShockerAction}, the request is conditional once the hub was loaded from it.
+ */
+public class GetHubShockersAction extends StreamingRestAction<List<Shocker>> {
+
+    public GetHubShockersAction(final JavaShock instance, final DeviceHub hub) {
+        super(
+                instance,
+                "/1/devices/" + hub.getId() + "/shockers",
+                "GET",
+                (response, reader) -> read(instance, hub, response, reader)
+        );
+        priority = RequestPriority.LOW;
+    }
+
+    @Override
+    protected HttpRequest.Builder buildRequest() {
+        final HttpRequest.Builder request = super.buildRequest();
+        final CacheValidator validator = instance.getCache().getValidator(getEndpoint());
+        return validator == null ? request : validator.apply(request);
+    }
+
+    private static List<Shocker> read(final JavaShock instance, final DeviceHub hub, final HttpResponse<InputStream> response, final JsonReader reader) throws IOException {
+        final ShockerCache cache = instance.getCache();
+        final String endpoint = "/1/devices/" + hub.getId() + "/shockers";
+        if (response.statusCode() == 404) {
+            // the hub was deleted
+            cache.removeHub(hub.getId());
+            return List.of();
+        }
+        if (response.statusCode() == 304) {
+            final DeviceHub cached = cache.getHub(hub.getId());
+            if (cached == null) {
+                // removed in the meantime, the next refresh has to download it
+                cache.setValidator(endpoint, null);
+                return null;
+            }
+            cache.renew(hub.getId());
+            return List.copyOf(cached.getShockers());
+        }
+        if (response.statusCode() != 200) return null;
+        if (!JsonUtil.beginObject(reader)) return null;
+        List<GetShockerAction.ShockerFields> fields = null;
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                fields = GetShockerAction.readShockers(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        if (fields == null) return null;
+        final List<Shocker> shockers = new ArrayList<>(fields.size());
+        fields.forEach(shocker -> shockers.add(shocker.toShocker(instance, hub.getId())));
+        cache.putHub(hub, shockers);
+        cache.setValidator(endpoint, CacheValidator.of(response));
+        return shockers;
+    }
+
+}
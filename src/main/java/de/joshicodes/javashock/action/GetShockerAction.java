@@ -1,66 +1,156 @@
 package de.joshicodes.javashock.action;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.cache.CacheValidator;
+import de.joshicodes.javashock.cache.ShockerCache;
 import de.joshicodes.javashock.object.DeviceHub;
 import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.ratelimit.RequestPriority;
 import de.joshicodes.javashock.util.JsonUtil;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
-public class GetShockerAction extends RestAction<HashMap<DeviceHub, List<Shocker>>> {
+/**
+ * Retrieves all hubs with their shockers and replaces the cache with them. <br>
+ * If the cache was loaded from this endpoint before, the request is conditional:
+ * on {@code 304 Not Modified} the cached hubs and shockers are kept as they are, without reading a body.
+ */
+public class GetShockerAction extends StreamingRestAction<HashMap<DeviceHub, List<Shocker>>> {
+
+    public static final String ENDPOINT = "/1/shockers/own";
 
     public GetShockerAction(final JavaShock instance) {
         super(
                 instance,
-                "/1/shockers/own",
+                ENDPOINT,
                 "GET",
-                (resp) -> {
-                    final JsonElement json = resp.getAsJsonElement();
-                    final HashMap<DeviceHub, List<Shocker>> list = new HashMap<>();
-                    if (json == null) return list;
-                    if (!json.isJsonObject()) return list;
-                    final JsonObject object = json.getAsJsonObject();
-                    if (!object.has("data")) return list;
-                    final JsonElement dataElement = object.get("data");
-                    if (!dataElement.isJsonArray()) return list;
-                    final JsonArray data = dataElement.getAsJsonArray();
-                    for (final JsonElement hubElement : data) {
-                        if (!hubElement.isJsonObject()) continue;
-                        final JsonObject hubObject = hubElement.getAsJsonObject();
-                        final String hubId = JsonUtil.getString(hubObject, "id");
-                        final String hubName = JsonUtil.getString(hubObject, "name");
-                        if (hubId == null || hubName == null) continue;
-                        final DeviceHub hub = new DeviceHub(instance, hubId, hubName);
-                        if (!hubObject.has("shockers")) continue;
-                        final JsonElement shockersElement = hubObject.get("shockers");
-                        if (!shockersElement.isJsonArray()) continue;
-                        final JsonArray shockersArray = shockersElement.getAsJsonArray();
-                        final List<Shocker> shockers = new ArrayList<>();
-                        for (final JsonElement shockerElement : shockersArray) {
-                            if (!shockerElement.isJsonObject()) continue;
-                            final JsonObject shockerObject = shockerElement.getAsJsonObject();
-                            final String name = JsonUtil.getString(shockerObject, "name");
-                            final String id = JsonUtil.getString(shockerObject, "id");
-                            final boolean isPaused = JsonUtil.getBoolean(shockerObject, "isPaused");
-                            final long rfId = JsonUtil.getLong(shockerObject, "rfId");
-                            final String model = JsonUtil.getString(shockerObject, "model");
-                            if (name == null || id == null || model == null) continue;
-                            final Shocker shocker = new Shocker(instance, id, name, rfId, model, isPaused, hub.getId());
-                            shockers.add(shocker);
-                        }
-                        instance.registerHub(
-                                hub,
-                                shockers
-                        );
-                        list.put(hub, shockers);
-                    }
-                    return list;
-                });
+                (response, reader) -> read(instance, response, reader)
+        );
+        // refreshing the cache must not delay control requests
+        priority = RequestPriority.LOW;
+    }
+
+    @Override
+    protected HttpRequest.Builder buildRequest() {
+        final HttpRequest.Builder request = super.buildRequest();
+        final CacheValidator validator = instance.getCache().getValidator(ENDPOINT);
+        return validator == null ? request : validator.apply(request);
+    }
+
+    private static HashMap<DeviceHub, List<Shocker>> read(final JavaShock instance, final HttpResponse<InputStream> response, final JsonReader reader) throws IOException {
+        final ShockerCache cache = instance.getCache();
+        if (response.statusCode() == 304) {
+            cache.renew(null);
+            final HashMap<DeviceHub, List<Shocker>> cached = new HashMap<>();
+            cache.getHubs().forEach(hub -> cached.put(hub, hub.getShockers()));
+            return cached;
+        }
+        // e.g. an invalid token or a server error, the cache must not be replaced with an empty list
+        if (response.statusCode() != 200)
+            throw new RuntimeException("Request failed with status code " + response.statusCode());
+        final HashMap<DeviceHub, List<Shocker>> list = new HashMap<>();
+        if (!JsonUtil.beginObject(reader)) return list;
+        boolean found = false;
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("data") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            found = true;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                readHub(instance, reader, list);
+            }
+            reader.endArray();
+        }
+        if (!found) return list;
+        // swap in the new hubs at once, so readers never see a partially refreshed cache
+        cache.replaceAll(list);
+        cache.setValidator(ENDPOINT, CacheValidator.of(response));
+        return list;
+    }
+
+    private static void readHub(final JavaShock instance, final JsonReader reader, final HashMap<DeviceHub, List<Shocker>> list) throws IOException {
+        if (!JsonUtil.beginObject(reader)) {
+            reader.skipValue();
+            return;
+        }
+        String hubId = null;
+        String hubName = null;
+        // the shockers may come before the id of their hub
+        List<ShockerFields> shockers = null;
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> hubId = JsonUtil.nextString(reader);
+                case "name" -> hubName = JsonUtil.nextString(reader);
+                case "shockers" -> shockers = readShockers(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (hubId == null || hubName == null || shockers == null) return;
+        final DeviceHub hub = new DeviceHub(instance, hubId, hubName);
+        final List<Shocker> hubShockers = new ArrayList<>(shockers.size());
+        for (final ShockerFields fields : shockers) {
+            hubShockers.add(fields.toShocker(instance, hubId));
+        }
+        list.put(hub, hubShockers);
+    }
+
+    /**
+     * Reads an array of shockers, skipping entries without id, name or model.
+     *
+     * @return the fields of the shockers, or null if the value is not an array
+     */
+    static List<ShockerFields> readShockers(final JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        final List<ShockerFields> shockers = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (!JsonUtil.beginObject(reader)) {
+                reader.skipValue();
+                continue;
+            }
+            String id = null;
+            String name = null;
+            String model = null;
+            long rfId = 0;
+            boolean paused = false;
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = JsonUtil.nextString(reader);
+                    case "name" -> name = JsonUtil.nextString(reader);
+                    case "model" -> model = JsonUtil.nextString(reader);
+                    case "rfId" -> rfId = JsonUtil.nextLong(reader);
+                    case "isPaused" -> paused = JsonUtil.nextBoolean(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (name == null || id == null || model == null) continue;
+            shockers.add(new ShockerFields(id, name, rfId, model, paused));
+        }
+        reader.endArray();
+        return shockers;
+    }
+
+    record ShockerFields(String id, String name, long rfId, String model, boolean paused) {
+
+        Shocker toShocker(final JavaShock instance, final String hubId) {
+            return new Shocker(instance, id, name, rfId, model, paused, hubId);
+        }
+
     }
 
 }
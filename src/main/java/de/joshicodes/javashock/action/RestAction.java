@@ -4,19 +4,49 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.circuit.CircuitBreaker;
+import de.joshicodes.javashock.circuit.CircuitBreakerRegistry;
+import de.joshicodes.javashock.circuit.CircuitOpenException;
+import de.joshicodes.javashock.http.ConcurrencyLimiter;
+import de.joshicodes.javashock.http.Deadline;
+import de.joshicodes.javashock.http.DeadlineExceededException;
+import de.joshicodes.javashock.http.ExecutionMode;
+import de.joshicodes.javashock.http.RetryPolicy;
+import de.joshicodes.javashock.http.SingleFlight;
+import de.joshicodes.javashock.metrics.MetricsListener;
+import de.joshicodes.javashock.metrics.RequestMetrics;
+import de.joshicodes.javashock.ratelimit.RequestPriority;
+import de.joshicodes.javashock.ratelimit.RequestScheduler;
 import lombok.Getter;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.HashMap;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class RestAction<T> {
 
+    /**
+     * How often a request is queued again after a {@code 429 Too Many Requests} response.
+     */
+    public static final int MAX_RATE_LIMIT_RETRIES = 3;
+
     protected final JavaShock instance;
 
     @Getter
@@ -29,6 +59,17 @@ public class RestAction<T> {
 
     protected String contentType;
 
+    /**
+     * The priority of this request while it waits for its rate limit.
+     */
+    @Getter
+    protected RequestPriority priority = RequestPriority.NORMAL;
+
+    private String route;
+    private RetryPolicy retryPolicy;
+    private Duration timeout;
+    private Deadline deadline;
+
     public RestAction(final JavaShock instance, final String endpoint, final String method, final Function<HttpRequest.Builder, HttpRequest.Builder> clientModifier, final Function<RestResponse, T> responseHandler) {
         this.instance = instance;
         this.endpoint = endpoint;
@@ -49,11 +90,100 @@ public class RestAction<T> {
         });
     }
 
-    public HashMap<String, String> getHeaders() {
-        final HashMap<String, String> map = new HashMap<>();
-        map.put("accept", "application/json");
-        map.put("OpenShockToken", instance.getToken());
-        return map;
+    /**
+     * Sets the priority of this request while it waits for its rate limit.
+     *
+     * @param priority the priority
+     * @return this action
+     * @see RequestScheduler
+     */
+    public RestAction<T> priority(final RequestPriority priority) {
+        if (priority == null)
+            throw new IllegalArgumentException("Priority cannot be null");
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Returns the route of this request, the endpoint with ids replaced by {@code {id}}. Rate limits are applied per route.
+     *
+     * @return the route
+     * @see RequestScheduler#getRoute(String)
+     */
+    public String getRoute() {
+        if (route == null)
+            route = RequestScheduler.getRoute(endpoint);
+        return route;
+    }
+
+    /**
+     * Overrides the retry policy of the instance for this request.
+     *
+     * @param retryPolicy the retry policy, or null to use the one of the instance
+     * @return this action
+     */
+    public RestAction<T> retryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * @return the retry policy of this request, or the one of the instance if none was set
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy != null ? retryPolicy : instance.getRetryPolicy();
+    }
+
+    /**
+     * Sets the max time from sending this request until its result, including waiting for the rate limit and all retries.
+     * Overrides the timeout of the instance.
+     *
+     * @param timeout the timeout, or null to use the one of the instance
+     * @return this action
+     * @see #deadline(Deadline)
+     */
+    public RestAction<T> timeout(final Duration timeout) {
+        if (timeout != null && (timeout.isNegative() || timeout.isZero()))
+            throw new IllegalArgumentException("Timeout must be positive");
+        this.timeout = timeout;
+        this.deadline = null;
+        return this;
+    }
+
+    /**
+     * Sets a fixed point in time by which this request must be completed, e.g. to share one deadline between several requests.
+     * A request that is not sent by then is dropped.
+     *
+     * @param deadline the deadline, {@link Deadline#NONE} to wait as long as needed
+     * @return this action
+     * @see #timeout(Duration)
+     */
+    public RestAction<T> deadline(final Deadline deadline) {
+        if (deadline == null)
+            throw new IllegalArgumentException("Deadline cannot be null");
+        this.deadline = deadline;
+        this.timeout = null;
+        return this;
+    }
+
+    /**
+     * @return the deadline of this request if it is sent now: the one set with {@link #deadline(Deadline)},
+     * or the timeout of this request or the instance from now
+     * @see JavaShock#getTimeout()
+     */
+    public Deadline getDeadline() {
+        if (deadline != null) return deadline;
+        return Deadline.after(timeout != null ? timeout : instance.getTimeout());
+    }
+
+    /**
+     * Returns the headers sent with this request. By default, these are the immutable headers shared by all requests of the instance.
+     *
+     * @return the headers
+     * @see JavaShock#getDefaultHeaders()
+     */
+    public Map<String, String> getHeaders() {
+        return instance.getDefaultHeaders();
     }
 
     /**
@@ -61,6 +191,7 @@ public class RestAction<T> {
      * If you want to execute the request synchronously, use {@link #execute()} instead.
      *
      * @see #execute()
+     * @see #submit()
      * @see #queue(Consumer)
      * @see #queue(Consumer, Consumer)
      */
@@ -71,96 +202,402 @@ public class RestAction<T> {
     /**
      * Executes the request asynchronously. <br>
      * If you want to execute the request synchronously, use {@link #execute()} instead.
+     * If the request fails, the exception is passed to the uncaught exception handler of the completing thread.
      *
      * @param success The consumer that will be called when the request was successful. Can be null.
      * @see #execute()
+     * @see #submit()
      * @see #queue()
      * @see #queue(Consumer, Consumer)
      */
     public void queue(final Consumer<T> success) {
         queue(success, (e) -> {
-            throw new RuntimeException(e);
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
         });
     }
 
     /**
-     * Executes the request asynchronously. <br>
+     * Executes the request asynchronously. This method returns immediately. <br>
      * If you want to execute the request synchronously, use {@link #execute()} instead.
      *
      * @param success The consumer that will be called when the request was successful. Can be null.
      * @param failure The consumer that will be called when the request failed. Can be null.
      * @see #execute()
+     * @see #submit()
      * @see #queue()
      * @see #queue(Consumer)
      */
     public void queue(final Consumer<T> success, final Consumer<Throwable> failure) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                final T result = execute();
+        submit().whenComplete((result, error) -> {
+            if (error == null) {
                 if (success != null) success.accept(result);
-            } catch (Throwable e) {
-                if (failure != null) failure.accept(e);
+            } else if (failure != null) {
+                failure.accept(unwrap(error));
             }
-        }).join();
+        });
+    }
+
+    /**
+     * Executes the request asynchronously without blocking any thread while waiting for the response. <br>
+     * If an identical {@code GET} request is already in flight, its result is shared instead of sending a new one.
+     * Cancelling the future aborts the request, a shared request is only aborted once all callers cancelled.
+     *
+     * @return A future that completes with the result of the request, or fails with a {@link DeadlineExceededException}
+     * @see #queue(Consumer, Consumer)
+     * @see #execute()
+     */
+    public CompletableFuture<T> submit() {
+        final SingleFlight singleFlight = instance.getSingleFlight();
+        final String key = getDeduplicationKey();
+        if (singleFlight != null && key != null)
+            return singleFlight.execute(key, this::submitRequest);
+        return submitRequest();
+    }
+
+    /**
+     * Returns the key to identify identical requests, which share one request while in flight.
+     * Requests with the same method, endpoint, response handler and priority are considered identical.
+     *
+     * @return the key, or null if this request must not be deduplicated (all requests except {@code GET},
+     * and requests with their own timing, see {@link #hasDefaultTiming()})
+     * @see SingleFlight
+     */
+    protected String getDeduplicationKey() {
+        if (!"GET".equals(method) || responseHandler == null || !hasDefaultTiming())
+            return null;
+        return method + " " + endpoint + " " + responseHandler.getClass().getName() + " " + getPriority();
+    }
+
+    /**
+     * A request that joins a shared request inherits its deadline and retries,
+     * so only requests that use the timeout and retry policy of the instance are shared.
+     *
+     * @return true if no timeout, deadline or retry policy was set on this request
+     */
+    protected boolean hasDefaultTiming() {
+        return timeout == null && deadline == null && retryPolicy == null;
+    }
+
+    /**
+     * Builds and sends the request and applies the response handler.
+     *
+     * @return A future that completes with the result of the request
+     */
+    protected CompletableFuture<T> submitRequest() {
+        final HttpRequest request;
+        try {
+            request = buildRequest().build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        final Function<HttpResponse<String>, T> handler = r -> responseHandler.apply(new RestResponse<>(r, String.class));
+        // in ASYNC mode with a custom executor, the handler and callbacks run on that executor
+        final Executor executor = instance.getExecutionMode() == ExecutionMode.ASYNC ? instance.getExecutor() : null;
+        return send(request, HttpResponse.BodyHandlers.ofString(), handler, executor);
     }
 
     /**
      * Executes the request and returns the result. This method is blocking. <br>
-     * If you want to execute the request asynchronously, use {@link #queue()} instead.
+     * If you want to execute the request asynchronously, use {@link #queue()} or {@link #submit()} instead.
      *
      * @return The result of the request
      */
     public T execute() {
         try {
-            final HttpClient.Builder client = build();
-            final HttpRequest.Builder request = buildRequest();
-            final HttpResponse<String> response = sendRequest(
-                    client.build(),
-                    request.build(),
-                    HttpResponse.BodyHandlers.ofString(),
-                    3
-            );
-            return responseHandler.apply(new RestResponse<>(response, String.class));
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            return submit().join();
+        } catch (CompletionException e) {
+            final Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException runtime)
+                throw runtime;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Sends the request and retries it according to the {@link RetryPolicy}. <br>
+     * Retries are scheduled after their backoff, no thread waits in between.
+     * The returned future fails with a {@link DeadlineExceededException} once the {@link #getDeadline() deadline} passed,
+     * and cancelling it or missing the deadline aborts the attempt in flight.
+     *
+     * @param request the request to send
+     * @param handler the body handler
+     * @return a future that completes with the response
+     * @see #getRetryPolicy()
+     */
+    protected <C> CompletableFuture<HttpResponse<C>> send(HttpRequest request, HttpResponse.BodyHandler<C> handler) {
+        return send(request, handler, Function.identity(), null);
+    }
+
+    /**
+     * Sends the request like {@link #send(HttpRequest, HttpResponse.BodyHandler)} and reads the response. <br>
+     * The deadline also covers reading the body. If it passes or the request is cancelled while a streamed body is read,
+     * the body is closed, so a read that blocks fails instead of waiting for the rest of the body.
+     *
+     * @param request  the request to send
+     * @param handler  the body handler
+     * @param reader   reads the result from the response
+     * @param executor runs the reader, or null to run it on the thread that received the response
+     * @return a future that completes with the result of the reader
+     */
+    protected <C, R> CompletableFuture<R> send(HttpRequest request, HttpResponse.BodyHandler<C> handler, Function<HttpResponse<C>, R> reader, Executor executor) {
+        final MetricsListener metrics = instance.getMetrics();
+        final RequestTimer timer = metrics == MetricsListener.NOOP ? null : new RequestTimer();
+        if (timer != null)
+            metrics.onRequestStart(getRoute(), method);
+        final Call call = new Call(getDeadline());
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        final CompletableFuture<HttpResponse<C>> response = send(request, handler, 1, timer != null ? timer.start : System.nanoTime(), timer, call);
+        final Function<HttpResponse<C>, R> read = r -> call.read(r, reader);
+        (executor == null ? response.thenApply(read) : response.thenApplyAsync(read, executor)).whenComplete((value, error) -> {
+            if (error == null) result.complete(value);
+            else result.completeExceptionally(unwrap(error));
+        });
+        call.watch(result);
+        if (timer == null)
+            return result;
+        result.whenComplete((value, error) -> metrics.onRequestEnd(new RequestMetrics(
+                getRoute(),
+                method,
+                call.response == null ? -1 : call.response.statusCode(),
+                timer.attempts,
+                timer.networkNanos,
+                System.nanoTime() - timer.start,
+                call.response == null ? -1 : call.response.headers().firstValueAsLong("Content-Length").orElse(-1),
+                error == null ? null : unwrap(error)
+        )));
+        return result;
+    }
+
+    private <C> CompletableFuture<HttpResponse<C>> send(HttpRequest request, HttpResponse.BodyHandler<C> handler, int attempt, long start, RequestTimer timer, Call call) {
+        final RetryPolicy policy = getRetryPolicy();
+        return schedule(request, handler, MAX_RATE_LIMIT_RETRIES, timer, call)
+                .handle((response, error) -> {
+                    final Throwable cause = error == null ? null : call.map(unwrap(error));
+                    final boolean retry = cause != null
+                            ? policy.shouldRetry(method, cause, attempt)
+                            : policy.shouldRetry(method, response.statusCode(), attempt);
+                    final long delay = retry ? policy.getDelayNanos(attempt) : 0;
+                    if (!retry || call.isDone() || !policy.hasTimeLeft(System.nanoTime() - start, delay) || call.deadline.remainingNanos() <= delay) {
+                        return cause != null
+                                ? CompletableFuture.<HttpResponse<C>>failedFuture(cause)
+                                : CompletableFuture.completedFuture(response);
+                    }
+                    if (timer != null)
+                        instance.getMetrics().onRetry(getRoute(), method, attempt, cause != null ? -1 : response.statusCode(), cause);
+                    discard(response);
+                    return delay(delay).thenCompose(v -> send(request, handler, attempt + 1, start, timer, call));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Closes the body of a response that is not passed on, e.g. an unread stream before a retry.
+     *
+     * @param response the response, can be null
+     */
+    protected static void discard(HttpResponse<?> response) {
+        if (response != null && response.body() instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+            }
         }
     }
 
-    protected <C> HttpResponse<C> sendRequest(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<C> handler, int retries) {
+    /**
+     * Returns a future that completes after the given delay, without blocking a thread.
+     *
+     * @param nanos the delay in nanoseconds
+     * @return the future
+     */
+    protected CompletableFuture<Void> delay(long nanos) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        instance.getScheduler().schedule(() -> future.complete(null), nanos, TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    /**
+     * Sends the request once the rate limit of its route allows it. <br>
+     * A {@code 429} response pauses the route for the time given in {@code Retry-After} and the request is queued again.
+     *
+     * @see RequestScheduler
+     */
+    private <C> CompletableFuture<HttpResponse<C>> schedule(HttpRequest request, HttpResponse.BodyHandler<C> handler, int rateLimitRetries, RequestTimer timer, Call call) {
+        final RequestScheduler scheduler = instance.getRequestScheduler();
+        final String route = getRoute();
+        final CompletableFuture<HttpResponse<C>> scheduled = scheduler.schedule(route, getPriority(), () -> acquire(request, handler, timer, call));
+        call.queued(scheduled);
+        return scheduled
+                .thenCompose(response -> {
+                    if (response.statusCode() != 429 || rateLimitRetries <= 0)
+                        return CompletableFuture.completedFuture(response);
+                    final Duration retryAfter = RequestScheduler.parseRetryAfter(response);
+                    if (call.deadline.remainingNanos() <= retryAfter.toNanos())
+                        return CompletableFuture.completedFuture(response);
+                    scheduler.pause(route, retryAfter);
+                    if (timer != null)
+                        instance.getMetrics().onRateLimited(route, retryAfter);
+                    discard(response);
+                    return schedule(request, handler, rateLimitRetries - 1, timer, call);
+                });
+    }
+
+    /**
+     * Sends the request according to the {@link ExecutionMode} of the instance,
+     * waiting for a free slot first if the number of concurrent requests is limited.
+     */
+    private <C> CompletableFuture<HttpResponse<C>> acquire(HttpRequest request, HttpResponse.BodyHandler<C> handler, RequestTimer timer, Call call) {
+        final ConcurrencyLimiter limiter = instance.getConcurrencyLimiter();
+        if (limiter == null)
+            return guard(request, handler, timer, call);
+        // only a permit that was acquired is released, not one whose wait failed
+        return limiter.acquire().thenCompose(v -> {
+            final CompletableFuture<HttpResponse<C>> response;
+            try {
+                response = guard(request, handler, timer, call);
+            } catch (RuntimeException e) {
+                limiter.release();
+                throw e;
+            }
+            return response.whenComplete((r, e) -> limiter.release());
+        });
+    }
+
+    /**
+     * Sends the request if the circuits of its route and hubs are not open, and reports the outcome to them. <br>
+     * Every attempt passes here, so retries stop as soon as a circuit opens.
+     * I/O errors and {@code 5xx} responses count as failures.
+     * Requests that missed their deadline or were cancelled while they waited are dropped here instead of being sent late.
+     *
+     * @see CircuitBreakerRegistry
+     */
+    private <C> CompletableFuture<HttpResponse<C>> guard(HttpRequest request, HttpResponse.BodyHandler<C> handler, RequestTimer timer, Call call) {
+        if (call.deadline.isExpired())
+            return CompletableFuture.failedFuture(call.deadline.exceeded());
+        if (call.isDone())
+            return CompletableFuture.failedFuture(new CancellationException("The request was cancelled"));
+        final CircuitBreakerRegistry circuits = instance.getCircuitBreakers();
+        if (circuits == null)
+            return dispatch(request, handler, timer, call);
+        final List<CircuitBreaker> breakers;
+        try {
+            breakers = circuits.acquire(getRoute(), getHubIds());
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return dispatch(request, handler, timer, call).whenComplete((response, error) -> {
+            final Throwable cause = error == null ? null : unwrap(error);
+            final boolean failure = cause == null ? response.statusCode() >= 500 : cause instanceof IOException;
+            for (final CircuitBreaker breaker : breakers) {
+                if (failure) breaker.onFailure();
+                else if (cause == null) breaker.onSuccess();
+                // not an answer of the server, e.g. a cancelled request
+                else breaker.release();
+            }
+        });
+    }
+
+    /**
+     * Returns the hubs this request controls, their circuit breakers are applied in addition to the one of the route.
+     *
+     * @return the ids of the hubs, empty by default
+     */
+    protected Collection<String> getHubIds() {
+        return List.of();
+    }
+
+    private <C> CompletableFuture<HttpResponse<C>> dispatch(HttpRequest request, HttpResponse.BodyHandler<C> handler, RequestTimer timer, Call call) {
+        if (timer == null)
+            return dispatch(request, handler, call);
+        final long sent = System.nanoTime();
+        timer.attempts++;
+        return dispatch(request, handler, call).whenComplete((r, e) -> timer.networkNanos = System.nanoTime() - sent);
+    }
+
+    private <C> CompletableFuture<HttpResponse<C>> dispatch(HttpRequest request, HttpResponse.BodyHandler<C> handler, Call call) {
+        // the client also gives up on an attempt that hangs past the deadline, even if the timer of the call could not be scheduled
+        final HttpRequest attempt = call.deadline.isNone()
+                ? request
+                : HttpRequest.newBuilder(request, (name, value) -> true).timeout(Duration.ofNanos(Math.max(1, call.deadline.remainingNanos()))).build();
+        if (instance.getExecutionMode() == ExecutionMode.ASYNC) {
+            final CompletableFuture<HttpResponse<C>> exchange = sendRequest(getClient(), attempt, handler);
+            call.exchange(exchange);
+            return exchange;
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            // the deadline may have passed while waiting for a worker
+            call.enter();
+            try {
+                return sendRequestBlocking(getClient(), attempt, handler);
+            } finally {
+                call.exit();
+            }
+        }, instance.getExecutor());
+    }
+
+    protected <C> HttpResponse<C> sendRequestBlocking(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<C> handler) {
         try {
             return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
         } catch (Exception e) {
-            if (retries > 0) {
-                return sendRequest(client, request, handler, retries - 1);
-            }
-            throw new RuntimeException(e);
+            throw new CompletionException(e);
         }
     }
 
-    protected HttpClient.Builder build() {
-        return HttpClient.newBuilder()
-                .followRedirects(HttpClient.Redirect.NORMAL)
-                .version(HttpClient.Version.HTTP_2);
+    protected <C> CompletableFuture<HttpResponse<C>> sendRequest(HttpClient client, HttpRequest request, HttpResponse.BodyHandler<C> handler) {
+        return client.sendAsync(request, handler);
+    }
+
+    /**
+     * Removes the {@link CompletionException} wrappers added by {@link CompletableFuture}.
+     *
+     * @param throwable the throwable to unwrap
+     * @return the actual cause
+     */
+    protected static Throwable unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    /**
+     * Returns the shared client of the instance, so connections are reused between requests.
+     *
+     * @return the HttpClient to send the request with
+     */
+    protected HttpClient getClient() {
+        return instance.getTransport().getClient();
     }
 
     protected String prepareBody() {
         return null;
     }
 
+    /**
+     * Returns the encoded body of the request. Override this instead of {@link #prepareBody()}
+     * to write the body without creating a String first.
+     *
+     * @return the UTF-8 encoded body, or null if the request has no body
+     */
+    protected byte[] prepareBodyBytes() {
+        final String body = prepareBody();
+        return body == null ? null : body.getBytes(StandardCharsets.UTF_8);
+    }
+
     protected HttpRequest.Builder buildRequest() {
         final String apiHost = instance.getApiHost();
         final String url = apiHost + ((!apiHost.endsWith("/") && !endpoint.startsWith("/")) ? "/" : "") + endpoint;
-        final String body = prepareBody();
+        final byte[] body = prepareBodyBytes();
         HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
-                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
         // Add body
         if (body != null && !method.equals("GET")) {
             request = request.header("Content-Type", contentType == null ? "application/json" : contentType);
-            // send content length
-            //request = request.header("Content-Length", String.valueOf(body.length()));
-            // send raw body
-            request.POST(HttpRequest.BodyPublishers.ofString(body));
         }
         // Apply headers
         getHeaders().forEach(request::header);
@@ -170,6 +607,153 @@ public class RestAction<T> {
         return request;
     }
 
+    /**
+     * The state of one sent request across its attempts: its deadline and the attempt in flight, which is aborted on cancellation.
+     */
+    private final class Call {
+
+        private final Deadline deadline;
+        private volatile boolean done;
+        private ScheduledFuture<?> timeout;
+        private CompletableFuture<?> queued;
+        private CompletableFuture<?> exchange;
+        private Thread worker;
+        private boolean interrupted;
+        private volatile HttpResponse<?> response;
+        private AutoCloseable body;
+
+        private Call(final Deadline deadline) {
+            this.deadline = deadline;
+        }
+
+        /**
+         * Fails the result once the deadline passed, and aborts the attempt in flight once the result failed.
+         */
+        private void watch(final CompletableFuture<?> result) {
+            if (!deadline.isNone()) {
+                try {
+                    final ScheduledFuture<?> scheduled = instance.getScheduler().schedule(
+                            () -> result.completeExceptionally(deadline.exceeded()), Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+                    synchronized (this) {
+                        timeout = scheduled;
+                    }
+                } catch (RejectedExecutionException ignored) {
+                    // shut down, the timeout of the attempt still applies
+                }
+            }
+            result.whenComplete((value, error) -> finish(error != null));
+        }
+
+        private boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Replaces a timeout of the client with the deadline, if it passed.
+         */
+        private Throwable map(final Throwable cause) {
+            if (!(cause instanceof HttpTimeoutException) || !deadline.isExpired()) return cause;
+            final DeadlineExceededException exceeded = deadline.exceeded();
+            exceeded.initCause(cause);
+            return exceeded;
+        }
+
+        /**
+         * Keeps the request while it waits for its rate limit, so it is taken out of the queue once the call failed.
+         */
+        private void queued(final CompletableFuture<?> queued) {
+            synchronized (this) {
+                if (!done) {
+                    this.queued = queued;
+                    return;
+                }
+            }
+            queued.cancel(false);
+        }
+
+        private void exchange(final CompletableFuture<?> exchange) {
+            synchronized (this) {
+                if (!done) {
+                    this.exchange = exchange;
+                    return;
+                }
+            }
+            exchange.cancel(true);
+        }
+
+        /**
+         * Reads the response. A streamed body is kept until the call finished, so it can be closed to abort the read.
+         */
+        private <C, R> R read(final HttpResponse<C> response, final Function<HttpResponse<C>, R> reader) {
+            synchronized (this) {
+                if (done) {
+                    // the deadline passed or the request was cancelled in the meantime
+                    discard(response);
+                    throw new CancellationException("The request was cancelled");
+                }
+                this.response = response;
+                if (response.body() instanceof AutoCloseable closeable)
+                    body = closeable;
+            }
+            return reader.apply(response);
+        }
+
+        private synchronized void enter() {
+            if (deadline.isExpired())
+                throw new CompletionException(deadline.exceeded());
+            if (done)
+                throw new CancellationException("The request was cancelled");
+            worker = Thread.currentThread();
+        }
+
+        private synchronized void exit() {
+            worker = null;
+            // do not leave the interrupt of an aborted attempt on a pooled thread
+            if (interrupted) Thread.interrupted();
+        }
+
+        private void finish(final boolean failed) {
+            final ScheduledFuture<?> timeout;
+            final CompletableFuture<?> queued;
+            final CompletableFuture<?> exchange;
+            final AutoCloseable body;
+            synchronized (this) {
+                done = true;
+                timeout = this.timeout;
+                queued = failed ? this.queued : null;
+                exchange = failed ? this.exchange : null;
+                body = failed ? this.body : null;
+                if (failed && worker != null) {
+                    interrupted = true;
+                    worker.interrupt();
+                }
+            }
+            if (timeout != null) timeout.cancel(false);
+            if (queued != null) queued.cancel(false);
+            if (exchange != null) exchange.cancel(true);
+            if (body != null) {
+                // a read blocked on the body fails with an IOException
+                try {
+                    body.close();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Collects the timings of a request for its {@link RequestMetrics}. Attempts never overlap,
+     * so the fields are only written by one thread at a time.
+     */
+    private static final class RequestTimer {
+
+        private final long start = System.nanoTime();
+        private volatile int attempts;
+        private volatile long networkNanos;
+
+    }
+
     public record RestResponse<A>(HttpResponse<A> httpResponse, Class<A> aClass) {
 
         public String rawBody() {
@@ -2,6 +2,7 @@ package de.joshicodes.javashock.action;
 
 import de.joshicodes.javashock.JavaShock;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 /**
@@ -14,13 +15,17 @@ public class SimpleAction<T> extends RestAction<T> {
     final Supplier<T> supplier;
 
     public SimpleAction(final JavaShock instance, final Supplier<T> supplier) {
-        super(null, null, null, null);
+        super(instance, null, null, null);
         this.supplier = supplier;
     }
 
     @Override
-    public T execute() {
-        return supplier.get();
+    public CompletableFuture<T> submit() {
+        try {
+            return CompletableFuture.completedFuture(supplier.get());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
 }
@@ -0,0 +1,78 @@
+package de.joshicodes.javashock.action;
+
+import com.google.gson.stream.JsonReader;
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.http.ExecutionMode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A RestAction that reads the response body as a stream, without materializing it as a String or a JSON tree. <br>
+ * The handler gets a {@link JsonReader} on the body and binds the values it needs directly to objects.
+ *
+ * @param <T> the result type
+ */
+public class StreamingRestAction<T> extends RestAction<T> {
+
+    protected final StreamHandler<T> streamHandler;
+
+    public StreamingRestAction(final JavaShock instance, final String endpoint, final String method, final StreamHandler<T> streamHandler) {
+        super(instance, endpoint, method, null);
+        this.streamHandler = streamHandler;
+    }
+
+    @Override
+    protected String getDeduplicationKey() {
+        if (!"GET".equals(getMethod()) || !hasDefaultTiming())
+            return null;
+        return getMethod() + " " + getEndpoint() + " " + streamHandler.getClass().getName() + " " + getPriority();
+    }
+
+    @Override
+    protected CompletableFuture<T> submitRequest() {
+        final HttpRequest request;
+        try {
+            request = buildRequest().build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // in the blocking modes the response completes on a worker thread, which may also read the body,
+        // a transport thread must never block on it
+        final Executor executor = instance.getExecutionMode() != ExecutionMode.ASYNC ? null : instance.getBodyReader();
+        return send(request, HttpResponse.BodyHandlers.ofInputStream(), this::read, executor);
+    }
+
+    private T read(final HttpResponse<InputStream> response) {
+        try (InputStream body = response.body();
+             JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return streamHandler.read(response, reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface StreamHandler<T> {
+
+        /**
+         * Reads the result from the response body. The body is closed afterwards,
+         * so it does not have to be read to the end.
+         *
+         * @param response the response, its body must not be read directly
+         * @param reader   the reader on the body
+         * @return the result
+         * @throws IOException if the body could not be read
+         */
+        T read(HttpResponse<InputStream> response, JsonReader reader) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.circuit.CircuitBreakerRegistry;
+import de.joshicodes.javashock.circuit.CircuitOpenException;
+import de.joshicodes.javashock.http.Deadline;
+import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.ratelimit.RequestPriority;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffers control commands for a short window and sends them as one request to {@code /2/shockers/control}. <br>
+ * A batch is sent when the window elapsed, when it reached the max batch size,
+ * when a second command for a shocker that is already in the batch or one with another retry policy arrives,
+ * or when a {@link ControlData.ControlType#STOP} is added.
+ * Every caller gets the result of the request that carried its command.
+ * Commands whose deadline passed or whose future was cancelled while they were buffered are dropped,
+ * the batch gets the earliest deadline and the highest priority of the others.
+ * The request of a batch is cancelled once the futures of all its commands were cancelled.
+ */
+public class CoalescingControlDispatcher implements ControlDispatcher {
+
+    private final JavaShock instance;
+
+    @Getter
+    private final Duration window;
+    @Getter
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private List<PendingControl> pending;
+    private final Set<String> pendingIds;
+    private ScheduledFuture<?> flushTask;
+    private boolean closed;
+
+    public CoalescingControlDispatcher(final JavaShock instance, final Duration window, final int maxBatchSize) {
+        if (window == null || window.isNegative() || window.isZero())
+            throw new IllegalArgumentException("Window must be positive");
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("Max batch size must be at least 1");
+        this.instance = instance;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.pending = new ArrayList<>();
+        this.pendingIds = new HashSet<>();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data) {
+        return dispatch(shocker, data, ControlOptions.DEFAULT);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data, final ControlOptions options) {
+        final PendingControl control = new PendingControl(shocker, data, options, new CompletableFuture<>());
+        List<PendingControl> previous = null;
+        List<PendingControl> current = null;
+        synchronized (lock) {
+            if (closed)
+                return CompletableFuture.failedFuture(new IllegalStateException("JavaShock was shut down"));
+            // the API takes one command per shocker, so a second one starts a new batch, as does one that is retried differently
+            if (pendingIds.contains(shocker.getId())
+                    || !pending.isEmpty() && pending.get(0).options().retryPolicy() != options.retryPolicy())
+                previous = takeBatch();
+            pending.add(control);
+            pendingIds.add(shocker.getId());
+            if (pending.size() >= maxBatchSize || data.type() == ControlData.ControlType.STOP) {
+                current = takeBatch();
+            } else if (flushTask == null) {
+                flushTask = instance.getScheduler().schedule(this::flush, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (previous != null) send(previous);
+        if (current != null) send(current);
+        return control.future();
+    }
+
+    /**
+     * Sends all pending commands immediately.
+     */
+    public void flush() {
+        final List<PendingControl> batch;
+        synchronized (lock) {
+            batch = takeBatch();
+        }
+        send(batch);
+    }
+
+    @Override
+    public void close() {
+        final List<PendingControl> batch;
+        synchronized (lock) {
+            closed = true;
+            batch = takeBatch();
+        }
+        final IllegalStateException exception = new IllegalStateException("JavaShock was shut down");
+        batch.forEach(control -> control.future().completeExceptionally(exception));
+    }
+
+    private List<PendingControl> takeBatch() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+        final List<PendingControl> batch = pending;
+        pending = new ArrayList<>();
+        pendingIds.clear();
+        return batch;
+    }
+
+    private void send(final List<PendingControl> batch) {
+        final CircuitBreakerRegistry circuits = instance.getCircuitBreakers();
+        if (circuits != null) {
+            // commands for hubs with an open circuit would fail the whole batch
+            batch.removeIf(control -> {
+                final CircuitOpenException open = circuits.checkHub(control.shocker().getHubId());
+                if (open != null) control.future().completeExceptionally(open);
+                return open != null;
+            });
+        }
+        batch.removeIf(control -> {
+            // cancelled by the caller
+            if (control.future().isDone()) return true;
+            final Deadline deadline = control.options().deadline();
+            if (!deadline.isExpired()) return false;
+            control.future().completeExceptionally(deadline.exceeded());
+            return true;
+        });
+        if (batch.isEmpty()) return;
+        instance.getMetrics().onControlBatch(batch.size());
+        final ControlRequestAction action = new ControlRequestAction(instance, false);
+        Deadline deadline = Deadline.NONE;
+        RequestPriority priority = RequestPriority.LOW;
+        for (final PendingControl control : batch) {
+            action.addShockControl(control.shocker(), control.data());
+            deadline = Deadline.earliest(deadline, control.options().deadline());
+            if (control.options().priority().compareTo(priority) < 0) priority = control.options().priority();
+        }
+        // no command of the batch may be delivered late or wait behind less urgent requests
+        new ControlOptions(deadline, priority, batch.get(0).options().retryPolicy()).apply(action);
+        final CompletableFuture<Boolean> request = action.submit();
+        request.whenComplete((result, error) -> {
+            for (final PendingControl control : batch) {
+                if (error == null) control.future().complete(result);
+                else control.future().completeExceptionally(error);
+            }
+        });
+        final AtomicInteger waiting = new AtomicInteger(batch.size());
+        for (final PendingControl control : batch) {
+            control.future().whenComplete((result, error) -> {
+                if (control.future().isCancelled() && waiting.decrementAndGet() == 0) request.cancel(true);
+            });
+        }
+    }
+
+    private record PendingControl(Shocker shocker, ControlData data, ControlOptions options, CompletableFuture<Boolean> future) {
+    }
+
+}
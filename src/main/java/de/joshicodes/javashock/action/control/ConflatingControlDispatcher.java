@@ -0,0 +1,174 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.object.Shocker;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps at most one command per shocker in flight and at most one waiting behind it, besides a stop. <br>
+ * A command for a shocker that has no command in flight is passed on at once. Otherwise it waits until the one in flight completed,
+ * and a newer command for the same shocker replaces it; the replaced command is not sent and its future completes with false.
+ * A {@link ControlData.ControlType#STOP} discards the waiting command at once. It is passed on as soon as the command in flight completed,
+ * so it cannot reach the server before that command, and it is not replaced by commands after it; those wait behind the stop.
+ * <br><br>
+ * Under overload this bounds the backlog to one command per shocker, so the latest command is never stuck behind stale ones.
+ * Commands for the same shocker are passed on in order. A waiting command whose future was cancelled is dropped.
+ */
+public class ConflatingControlDispatcher implements ControlDispatcher {
+
+    private final ControlDispatcher delegate;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * @param delegate the dispatcher the commands are passed on to
+     */
+    public ConflatingControlDispatcher(final ControlDispatcher delegate) {
+        if (delegate == null)
+            throw new IllegalArgumentException("Delegate cannot be null");
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data) {
+        return dispatch(shocker, data, ControlOptions.DEFAULT);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data, final ControlOptions options) {
+        if (closed)
+            return CompletableFuture.failedFuture(new IllegalStateException("JavaShock was shut down"));
+        final Lane lane = lanes.computeIfAbsent(shocker.getId(), id -> new Lane());
+        final PendingControl superseded;
+        final PendingControl supersededStop;
+        final CompletableFuture<Boolean> future;
+        synchronized (lane) {
+            if (!lane.inFlight) {
+                lane.inFlight = true;
+                superseded = null;
+                supersededStop = null;
+                future = null;
+            } else if (data.type() == ControlData.ControlType.STOP) {
+                superseded = lane.pending;
+                supersededStop = lane.stop;
+                lane.pending = null;
+                lane.stop = new PendingControl(shocker, data, options, new CompletableFuture<>());
+                future = lane.stop.future();
+            } else {
+                superseded = lane.pending;
+                supersededStop = null;
+                lane.pending = new PendingControl(shocker, data, options, new CompletableFuture<>());
+                future = lane.pending.future();
+            }
+        }
+        if (superseded != null) superseded.future().complete(false);
+        if (supersededStop != null) supersededStop.future().complete(false);
+        if (future == null) return send(lane, shocker, data, options);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) dequeue(lane, future);
+        });
+        return future;
+    }
+
+    /**
+     * @return the number of commands that wait for a command in flight
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (final Lane lane : lanes.values()) {
+            synchronized (lane) {
+                if (lane.stop != null) count++;
+                if (lane.pending != null) count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        final IllegalStateException exception = new IllegalStateException("JavaShock was shut down");
+        for (final Lane lane : lanes.values()) {
+            final PendingControl stop;
+            final PendingControl pending;
+            synchronized (lane) {
+                stop = lane.stop;
+                pending = lane.pending;
+                lane.stop = null;
+                lane.pending = null;
+            }
+            if (stop != null) stop.future().completeExceptionally(exception);
+            if (pending != null) pending.future().completeExceptionally(exception);
+        }
+        delegate.close();
+    }
+
+    private CompletableFuture<Boolean> send(final Lane lane, final Shocker shocker, final ControlData data, final ControlOptions options) {
+        CompletableFuture<Boolean> result;
+        try {
+            result = delegate.dispatch(shocker, data, options);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((ignored, error) -> completed(lane));
+        return result;
+    }
+
+    private void completed(final Lane lane) {
+        final PendingControl next;
+        synchronized (lane) {
+            // a stop goes first, the command after it waits for the stop to complete
+            if (lane.stop != null) {
+                next = lane.stop;
+                lane.stop = null;
+            } else if (lane.pending != null) {
+                next = lane.pending;
+                lane.pending = null;
+            } else {
+                lane.inFlight = false;
+                return;
+            }
+        }
+        final CompletableFuture<Boolean> sent = send(lane, next.shocker(), next.data(), next.options());
+        sent.whenComplete((result, error) -> {
+            if (error == null) next.future().complete(result);
+            else next.future().completeExceptionally(error);
+        });
+        next.future().whenComplete((result, error) -> {
+            if (next.future().isCancelled()) sent.cancel(true);
+        });
+    }
+
+    /**
+     * Removes a cancelled command that waits for the command in flight.
+     */
+    private static void dequeue(final Lane lane, final CompletableFuture<Boolean> future) {
+        synchronized (lane) {
+            if (lane.stop != null && lane.stop.future() == future) lane.stop = null;
+            if (lane.pending != null && lane.pending.future() == future) lane.pending = null;
+        }
+    }
+
+    /**
+     * The state of one shocker, guarded by its own monitor.
+     */
+    private static final class Lane {
+
+        /**
+         * If a command was passed on and did not complete yet.
+         */
+        private boolean inFlight;
+        /**
+         * A stop that waits for the command in flight, sent before {@link #pending}.
+         */
+        private PendingControl stop;
+        private PendingControl pending;
+
+    }
+
+    private record PendingControl(Shocker shocker, ControlData data, ControlOptions options, CompletableFuture<Boolean> future) {
+    }
+
+}
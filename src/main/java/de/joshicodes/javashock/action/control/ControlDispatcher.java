@@ -0,0 +1,76 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.object.Shocker;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decides how single control commands issued through {@link Shocker} are sent to the API.
+ *
+ * @see CoalescingControlDispatcher
+ * @see ConflatingControlDispatcher
+ */
+public interface ControlDispatcher {
+
+    /**
+     * Returns a dispatcher that sends every command in its own request, used at the end of a chain of dispatchers.
+     *
+     * @param instance the JavaShock instance
+     * @return the dispatcher
+     */
+    static ControlDispatcher direct(final JavaShock instance) {
+        return new ControlDispatcher() {
+
+            @Override
+            public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data) {
+                return dispatch(shocker, data, ControlOptions.DEFAULT);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data, final ControlOptions options) {
+                final ControlRequestAction action = new ControlRequestAction(instance, false);
+                options.apply(action);
+                action.addShockControl(shocker, data);
+                return action.submit();
+            }
+
+        };
+    }
+
+    /**
+     * Dispatches a control command for a single shocker. <br>
+     * Cancelling the returned future drops the command if it was not sent yet, otherwise the request that carries it is cancelled
+     * once no other command depends on it.
+     *
+     * @param shocker the shocker to control
+     * @param data    the control data, already validated
+     * @return a future that completes with the result of the request that carried the command
+     */
+    CompletableFuture<Boolean> dispatch(Shocker shocker, ControlData data);
+
+    /**
+     * Dispatches a control command with the settings of the action it was issued with.
+     * A command that misses its deadline is dropped. <br>
+     * By default, a command whose deadline already passed fails at once and others are passed to {@link #dispatch(Shocker, ControlData)},
+     * dispatchers that send the command themselves must apply the options to its request.
+     *
+     * @param shocker the shocker to control
+     * @param data    the control data, already validated
+     * @param options the deadline, priority and retry policy of the command
+     * @return a future that completes with the result of the request that carried the command,
+     * or fails with a {@link de.joshicodes.javashock.http.DeadlineExceededException}
+     */
+    default CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data, final ControlOptions options) {
+        if (options.deadline().isExpired())
+            return CompletableFuture.failedFuture(options.deadline().exceeded());
+        return dispatch(shocker, data);
+    }
+
+    /**
+     * Called when the JavaShock instance is shut down. Pending commands should be failed or sent.
+     */
+    default void close() {
+    }
+
+}
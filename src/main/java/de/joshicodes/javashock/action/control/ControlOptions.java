@@ -0,0 +1,38 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.http.Deadline;
+import de.joshicodes.javashock.http.RetryPolicy;
+import de.joshicodes.javashock.ratelimit.RequestPriority;
+
+/**
+ * The settings a control command was issued with, applied to the request that carries it.
+ *
+ * @param deadline    the deadline, {@link Deadline#NONE} to apply the timeout of the instance once the request is sent
+ * @param priority    the priority of the request while it waits for its rate limit
+ * @param retryPolicy the retry policy of the request, or null to use the one of the instance
+ * @see ControlDispatcher#dispatch(de.joshicodes.javashock.object.Shocker, ControlData, ControlOptions)
+ */
+public record ControlOptions(Deadline deadline, RequestPriority priority, RetryPolicy retryPolicy) {
+
+    /**
+     * No deadline, the default priority and the retry policy of the instance.
+     */
+    public static final ControlOptions DEFAULT = new ControlOptions(Deadline.NONE, RequestPriority.NORMAL, null);
+
+    public ControlOptions {
+        if (deadline == null)
+            throw new IllegalArgumentException("Deadline cannot be null");
+        if (priority == null)
+            throw new IllegalArgumentException("Priority cannot be null");
+    }
+
+    /**
+     * @param action the action that carries the command
+     */
+    void apply(final ControlRequestAction action) {
+        if (!deadline.isNone()) action.deadline(deadline);
+        action.priority(priority);
+        action.retryPolicy(retryPolicy);
+    }
+
+}
@@ -0,0 +1,230 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.object.Shocker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Writes the JSON body of a control request directly into a reusable byte buffer. <br>
+ * Unlike building a Gson tree, this only allocates the resulting byte array, so a single-shocker request
+ * costs about the same memory every time.
+ * <br><br>
+ * Writers are not thread-safe, use {@link #write(String, Map)} which keeps one writer per thread.
+ */
+public final class ControlPayloadWriter {
+
+    private static final ThreadLocal<ControlPayloadWriter> LOCAL = ThreadLocal.withInitial(ControlPayloadWriter::new);
+
+    private static final byte[] CUSTOM_NAME = ascii("{\"customName\":");
+    private static final byte[] SHOCKS = ascii(",\"shocks\":[");
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] TYPE = ascii(",\"type\":");
+    private static final byte[] INTENSITY = ascii(",\"intensity\":");
+    private static final byte[] DURATION = ascii(",\"duration\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] END = ascii("]}");
+    private static final byte[] INVOCATION = ascii("{\"type\":1,\"invocationId\":");
+    private static final byte[] CONTROL_TARGET = ascii(",\"target\":\"ControlV2\",\"arguments\":[[");
+    private static final byte[] ARGUMENTS_END = ascii("],");
+    /**
+     * Terminates every message of the SignalR JSON protocol.
+     */
+    private static final byte RECORD_SEPARATOR = 0x1E;
+    private static final byte[] HEX = ascii("0123456789abcdef");
+    private static final byte[][] TYPES;
+
+    /**
+     * The estimated size of one entry of the shocks array, used to pre-size the buffer.
+     */
+    private static final int SHOCK_SIZE = 96;
+    /**
+     * Buffers grown beyond this size by large batches are not kept.
+     */
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    static {
+        final ControlData.ControlType[] types = ControlData.ControlType.values();
+        TYPES = new byte[types.length][];
+        for (final ControlData.ControlType type : types) {
+            TYPES[type.ordinal()] = ascii("\"" + type.getName() + "\"");
+        }
+    }
+
+    /**
+     * Writes the body of a control request.
+     *
+     * @param customName the custom name shown in the logs, can be null
+     * @param data       the shockers and their control data
+     * @return the UTF-8 encoded JSON body
+     */
+    public static byte[] write(final String customName, final Map<Shocker, ControlData> data) {
+        final ControlPayloadWriter writer = LOCAL.get();
+        writer.reset(32 + (customName == null ? 4 : customName.length()) + data.size() * SHOCK_SIZE);
+        writer.writePayload(customName, data);
+        final byte[] bytes = writer.toByteArray();
+        if (writer.buffer.length > MAX_RETAINED_SIZE)
+            writer.buffer = new byte[256];
+        return bytes;
+    }
+
+    /**
+     * Writes a {@code ControlV2} invocation of the OpenShock user hub, as a record of the SignalR JSON protocol.
+     *
+     * @param invocationId the id the completion of the invocation refers to
+     * @param customName   the custom name shown in the logs, can be null
+     * @param data         the shockers and their control data
+     * @return the message including its record separator
+     */
+    public static String writeHubInvocation(final String invocationId, final String customName, final Map<Shocker, ControlData> data) {
+        final ControlPayloadWriter writer = LOCAL.get();
+        writer.reset(64 + (customName == null ? 4 : customName.length()) + data.size() * SHOCK_SIZE);
+        writer.write(INVOCATION);
+        writer.writeString(invocationId);
+        writer.write(CONTROL_TARGET);
+        writer.writeShocks(data);
+        writer.write(ARGUMENTS_END);
+        writer.writeString(customName);
+        writer.write((byte) ']');
+        writer.write((byte) '}');
+        writer.write(RECORD_SEPARATOR);
+        final String message = new String(writer.buffer, 0, writer.size, StandardCharsets.UTF_8);
+        if (writer.buffer.length > MAX_RETAINED_SIZE)
+            writer.buffer = new byte[256];
+        return message;
+    }
+
+    private byte[] buffer = new byte[256];
+    private int size;
+
+    private void reset(final int expected) {
+        size = 0;
+        ensure(expected);
+    }
+
+    private void writePayload(final String customName, final Map<Shocker, ControlData> data) {
+        write(CUSTOM_NAME);
+        writeString(customName);
+        write(SHOCKS);
+        writeShocks(data);
+        write(END);
+    }
+
+    private void writeShocks(final Map<Shocker, ControlData> data) {
+        boolean first = true;
+        for (final Map.Entry<Shocker, ControlData> entry : data.entrySet()) {
+            if (!first) write((byte) ',');
+            first = false;
+            writeShock(entry.getKey().getId(), entry.getValue());
+        }
+    }
+
+    private void writeShock(final String id, final ControlData data) {
+        write(ID);
+        writeString(id);
+        write(TYPE);
+        write(TYPES[data.type().ordinal()]);
+        write(INTENSITY);
+        writeLong(data.intensity());
+        write(DURATION);
+        writeLong(data.duration());
+        write((byte) '}');
+    }
+
+    private byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensure(final int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+
+    private void write(final byte b) {
+        ensure(1);
+        buffer[size++] = b;
+    }
+
+    private void write(final byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeLong(long value) {
+        if (value == 0) {
+            write((byte) '0');
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        final int start = size;
+        while (value > 0) {
+            buffer[size++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        // digits were written in reverse order
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            final byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    private void writeString(final String value) {
+        if (value == null) {
+            write(NULL);
+            return;
+        }
+        ensure(value.length() + 2);
+        buffer[size++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x80) {
+                // rare, escape the rest as a String and encode it at once
+                write(escape(value, i).getBytes(StandardCharsets.UTF_8));
+                break;
+            }
+            if (c == '"' || c == '\\') {
+                write((byte) '\\');
+                write((byte) c);
+            } else if (c < 0x20) {
+                ensure(6);
+                buffer[size++] = '\\';
+                buffer[size++] = 'u';
+                buffer[size++] = '0';
+                buffer[size++] = '0';
+                buffer[size++] = HEX[c >> 4];
+                buffer[size++] = HEX[c & 0xF];
+            } else {
+                write((byte) c);
+            }
+        }
+        write((byte) '"');
+    }
+
+    private static String escape(final String value, final int from) {
+        final StringBuilder builder = new StringBuilder(value.length() - from + 8);
+        for (int i = from; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static byte[] ascii(final String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+}
@@ -1,53 +1,171 @@
 package de.joshicodes.javashock.action.control;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
 import de.joshicodes.javashock.JavaShock;
 import de.joshicodes.javashock.action.RestAction;
+import de.joshicodes.javashock.circuit.CircuitBreaker;
+import de.joshicodes.javashock.circuit.CircuitBreakerRegistry;
+import de.joshicodes.javashock.circuit.CircuitOpenException;
+import de.joshicodes.javashock.http.Deadline;
+import de.joshicodes.javashock.http.DeadlineExceededException;
 import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.ratelimit.RequestPriority;
+import de.joshicodes.javashock.realtime.RealtimeConnection;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 public class ControlRequestAction extends RestAction<Boolean> {
 
     private final HashMap<Shocker, ControlData> data;
+    private final boolean dispatchable;
 
     public ControlRequestAction(JavaShock instance) {
+        this(instance, true);
+    }
+
+    /**
+     * @param dispatchable false if the request must be sent as is, even if the instance has a {@link ControlDispatcher}
+     */
+    ControlRequestAction(JavaShock instance, boolean dispatchable) {
         super(instance, "/2/shockers/control", "POST", resp -> {
             if (resp.httpResponse().statusCode() != 200)
                 throw new RuntimeException("Request failed with status code " + resp.httpResponse().statusCode());
             return true;
         });
-        data = new HashMap<>();
+        data = new LinkedHashMap<>();
         contentType = "application/json";
+        this.dispatchable = dispatchable;
     }
 
-    public RestAction<Boolean> addShockControl(Shocker shocker, ControlData data) {
+    static void validate(ControlData data) {
         final int intensity = data.intensity();
         if (intensity < 0 || intensity > 100)
             throw new IllegalArgumentException("Intensity must be between 0 and 100");
         final long duration = data.duration();
         if (duration < 0 || duration > JavaShock.MAX_SHOCK_DURATION)
             throw new IllegalArgumentException("Duration must be between 0 and " + JavaShock.MAX_SHOCK_DURATION);
+    }
+
+    public RestAction<Boolean> addShockControl(Shocker shocker, ControlData data) {
+        validate(data);
         this.data.put(shocker, data);
         return this;
     }
 
+    /**
+     * Control requests containing a {@link ControlData.ControlType#STOP} are sent before all others.
+     *
+     * @return the priority of this request
+     */
+    @Override
+    public RequestPriority getPriority() {
+        if (priority == RequestPriority.NORMAL) {
+            for (final ControlData controlData : data.values()) {
+                if (controlData.type() == ControlData.ControlType.STOP)
+                    return RequestPriority.HIGH;
+            }
+        }
+        return priority;
+    }
+
+    /**
+     * Sends the request. <br>
+     * A request for a single shocker is handed to the {@link ControlDispatcher} of the instance, if one is configured,
+     * requests for multiple shockers are always sent as they are.
+     * The deadline starts now, so time spent waiting in the dispatcher counts towards it, the priority and retry policy are kept.
+     * Cancelling the returned future drops the command from the dispatcher, or cancels the request once it was sent.
+     *
+     * @return A future that completes with the result of the request
+     */
+    @Override
+    public CompletableFuture<Boolean> submit() {
+        final ControlDispatcher dispatcher = instance.getControlDispatcher();
+        if (!dispatchable || dispatcher == null || data.size() != 1)
+            return super.submit();
+        final Map.Entry<Shocker, ControlData> entry = data.entrySet().iterator().next();
+        return dispatcher.dispatch(entry.getKey(), entry.getValue(), new ControlOptions(getDeadline(), priority, getRetryPolicy()));
+    }
+
+    /**
+     * Sends the commands over the {@link RealtimeConnection} of the instance while it is connected, otherwise over HTTP. <br>
+     * The circuit breakers of the hubs apply to both, a missing acknowledgement counts as a failure of the hub.
+     *
+     * @return A future that completes with the result of the request
+     */
+    @Override
+    protected CompletableFuture<Boolean> submitRequest() {
+        final RealtimeConnection realtime = instance.getRealtime();
+        if (realtime != null && realtime.isConnected()) {
+            final Deadline deadline = getDeadline();
+            if (deadline.isExpired())
+                return CompletableFuture.failedFuture(deadline.exceeded());
+            final CircuitBreakerRegistry circuits = instance.getCircuitBreakers();
+            final List<CircuitBreaker> breakers;
+            if (circuits == null) {
+                breakers = List.of();
+            } else {
+                final Collection<String> hubIds = getHubIds();
+                for (final String hubId : hubIds) {
+                    final CircuitOpenException open = circuits.checkHub(hubId);
+                    if (open != null) return CompletableFuture.failedFuture(open);
+                }
+                try {
+                    breakers = circuits.acquireHubs(hubIds);
+                } catch (CircuitOpenException e) {
+                    // all trial requests of a half-open hub are taken
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+            final CompletableFuture<Boolean> result = realtime.control(instance.getCustomName(), data, deadline);
+            if (result != null) {
+                if (!breakers.isEmpty()) result.whenComplete((acknowledged, error) -> report(breakers, error));
+                return result;
+            }
+            // disconnected in the meantime, the HTTP request takes its own permits
+            breakers.forEach(CircuitBreaker::release);
+        }
+        return super.submitRequest();
+    }
+
+    private static void report(final List<CircuitBreaker> breakers, final Throwable error) {
+        final Throwable cause = error == null ? null : unwrap(error);
+        for (final CircuitBreaker breaker : breakers) {
+            if (cause == null) breaker.onSuccess();
+            // the command was not lost, the caller gave up on it or its deadline was shorter than the hub may take
+            else if (cause instanceof CancellationException || cause instanceof DeadlineExceededException) breaker.release();
+            // an error of the hub, a lost connection or a missing acknowledgement
+            else breaker.onFailure();
+        }
+    }
+
+    /**
+     * @return the hubs of the controlled shockers, their circuit breakers are applied to this request
+     */
+    @Override
+    protected Collection<String> getHubIds() {
+        final Set<String> hubIds = new HashSet<>();
+        for (final Shocker shocker : data.keySet()) {
+            if (shocker.getHubId() != null) hubIds.add(shocker.getHubId());
+        }
+        return hubIds;
+    }
+
     @Override
     protected String prepareBody() {
-        final JsonObject object = new JsonObject();
-        object.addProperty("customName", instance.getCustomName());
-        final JsonArray shocks = new JsonArray();
-        data.forEach((shocker, controlData) -> {
-            final JsonObject shock = new JsonObject();
-            shock.addProperty("id", shocker.getId());
-            shock.addProperty("type", controlData.type().getName());
-            shock.addProperty("intensity", controlData.intensity());
-            shock.addProperty("duration", controlData.duration());
-            shocks.add(shock);
-        });
-        object.add("shocks", shocks);
-        return object.toString();
+        return new String(prepareBodyBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected byte[] prepareBodyBytes() {
+        return ControlPayloadWriter.write(instance.getCustomName(), data);
     }
 
 }
@@ -0,0 +1,175 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.action.RestAction;
+import de.joshicodes.javashock.circuit.CircuitBreakerRegistry;
+import de.joshicodes.javashock.circuit.CircuitOpenException;
+import de.joshicodes.javashock.http.Deadline;
+import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.ratelimit.RequestPriority;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a control command to many shockers at once. <br>
+ * All commands are sent in one request to {@code /2/shockers/control}, or in several if there are more than {@link #getMaxChunkSize()}.
+ * The chunks are sent as they are, bypassing the {@link ControlDispatcher} of the instance.
+ * Single members can be given a different intensity or duration with {@link #override(Shocker, ControlData)}.
+ * Members of hubs whose circuit breaker is open are not sent and reported as failed.
+ *
+ * @see de.joshicodes.javashock.object.ShockerGroup
+ * @see GroupControlResult
+ */
+public class GroupControlAction extends RestAction<GroupControlResult> {
+
+    /**
+     * The default max number of commands per request.
+     * The API does not document a limit, but its request bodies are limited in size, so large groups are split.
+     */
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 100;
+
+    private final LinkedHashMap<Shocker, ControlData> data;
+
+    @Getter
+    private int maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+
+    /**
+     * @param instance the JavaShock instance
+     * @param data     the shockers and their control data, validated and copied
+     */
+    public GroupControlAction(final JavaShock instance, final Map<Shocker, ControlData> data) {
+        super(instance, null, null, null);
+        if (data == null)
+            throw new IllegalArgumentException("Data cannot be null");
+        data.values().forEach(ControlRequestAction::validate);
+        this.data = new LinkedHashMap<>(data);
+    }
+
+    /**
+     * Sends a different command to one member.
+     *
+     * @param shocker the member
+     * @param data    the control data for this member
+     * @return this action
+     */
+    public GroupControlAction override(final Shocker shocker, final ControlData data) {
+        if (!this.data.containsKey(shocker))
+            throw new IllegalArgumentException("Shocker is not a member of the group");
+        ControlRequestAction.validate(data);
+        this.data.put(shocker, data);
+        return this;
+    }
+
+    /**
+     * Sends the command of the group with a different intensity and duration to one member.
+     *
+     * @param shocker   the member
+     * @param intensity the intensity for this member
+     * @param duration  the duration for this member
+     * @param unit      the time unit of the duration
+     * @return this action
+     */
+    public GroupControlAction override(final Shocker shocker, final int intensity, final long duration, final TimeUnit unit) {
+        final ControlData current = data.get(shocker);
+        if (current == null)
+            throw new IllegalArgumentException("Shocker is not a member of the group");
+        return override(shocker, new ControlData(current.type(), intensity, unit.toMillis(duration)));
+    }
+
+    /**
+     * @param maxChunkSize the max number of commands per request
+     * @return this action
+     */
+    public GroupControlAction maxChunkSize(final int maxChunkSize) {
+        if (maxChunkSize < 1)
+            throw new IllegalArgumentException("Max chunk size must be at least 1");
+        this.maxChunkSize = maxChunkSize;
+        return this;
+    }
+
+    /**
+     * Sends all chunks at once. They share the deadline of this action, and cancelling the returned future aborts all of them.
+     *
+     * @return a future that completes when all chunks were answered, it does not fail if only some commands failed
+     */
+    @Override
+    public CompletableFuture<GroupControlResult> submit() {
+        final Deadline deadline = getDeadline();
+        final CircuitBreakerRegistry circuits = instance.getCircuitBreakers();
+        final Map<Shocker, Throwable> rejected = new LinkedHashMap<>();
+        final List<Map<Shocker, ControlData>> chunks = new ArrayList<>();
+        Map<Shocker, ControlData> chunk = null;
+        for (final Map.Entry<Shocker, ControlData> entry : data.entrySet()) {
+            // members of hubs with an open circuit would fail the whole chunk
+            final CircuitOpenException open = circuits == null ? null : circuits.checkHub(entry.getKey().getHubId());
+            if (open != null) {
+                rejected.put(entry.getKey(), open);
+                continue;
+            }
+            if (chunk == null || chunk.size() == maxChunkSize) {
+                chunk = new LinkedHashMap<>();
+                chunks.add(chunk);
+            }
+            chunk.put(entry.getKey(), entry.getValue());
+        }
+        final List<CompletableFuture<Boolean>> requests = new ArrayList<>(chunks.size());
+        final List<CompletableFuture<Throwable>> outcomes = new ArrayList<>(chunks.size());
+        for (final Map<Shocker, ControlData> part : chunks) {
+            outcomes.add(send(part, deadline, requests));
+        }
+        final CompletableFuture<GroupControlResult> result = CompletableFuture.allOf(outcomes.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            final List<Shocker> succeeded = new ArrayList<>();
+            final Map<Shocker, ControlData> failed = new LinkedHashMap<>();
+            final Map<Shocker, Throwable> errors = new LinkedHashMap<>();
+            rejected.forEach((shocker, error) -> {
+                failed.put(shocker, data.get(shocker));
+                errors.put(shocker, error);
+            });
+            for (int i = 0; i < outcomes.size(); i++) {
+                final Throwable error = outcomes.get(i).join();
+                if (error == null) {
+                    succeeded.addAll(chunks.get(i).keySet());
+                    continue;
+                }
+                chunks.get(i).forEach((shocker, controlData) -> {
+                    failed.put(shocker, controlData);
+                    errors.put(shocker, error);
+                });
+            }
+            return new GroupControlResult(instance, maxChunkSize, succeeded, failed, errors);
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) requests.forEach(request -> request.cancel(true));
+        });
+        return result;
+    }
+
+    /**
+     * @param requests the list the request of the chunk is added to
+     * @return a future that completes with the error of the chunk, or null if it was accepted
+     */
+    private CompletableFuture<Throwable> send(final Map<Shocker, ControlData> chunk, final Deadline deadline, final List<CompletableFuture<Boolean>> requests) {
+        final ControlRequestAction action = new ControlRequestAction(instance, false);
+        chunk.forEach(action::addShockControl);
+        if (priority != RequestPriority.NORMAL) action.priority(priority);
+        action.retryPolicy(getRetryPolicy());
+        action.deadline(deadline);
+        try {
+            final CompletableFuture<Boolean> request = action.submit();
+            requests.add(request);
+            return request.handle((result, error) -> {
+                if (error != null) return unwrap(error);
+                return Boolean.TRUE.equals(result) ? null : new IllegalStateException("Control request was not accepted");
+            });
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(e);
+        }
+    }
+
+}
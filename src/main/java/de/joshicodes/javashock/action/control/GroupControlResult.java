@@ -0,0 +1,61 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.object.Shocker;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a {@link GroupControlAction} for every member. <br>
+ * The API answers a control request as a whole, so all members that were sent in the same chunk share its outcome.
+ */
+public class GroupControlResult {
+
+    private final JavaShock instance;
+    private final int maxChunkSize;
+
+    /**
+     * The members whose command was accepted.
+     */
+    @Getter
+    private final List<Shocker> succeeded;
+    /**
+     * The commands that failed, with the error of the request that carried them.
+     */
+    @Getter
+    private final Map<Shocker, Throwable> errors;
+    /**
+     * The members whose command failed, with the control data they were sent.
+     */
+    @Getter
+    private final Map<Shocker, ControlData> failed;
+
+    GroupControlResult(final JavaShock instance, final int maxChunkSize, final List<Shocker> succeeded, final Map<Shocker, ControlData> failed, final Map<Shocker, Throwable> errors) {
+        this.instance = instance;
+        this.maxChunkSize = maxChunkSize;
+        this.succeeded = Collections.unmodifiableList(succeeded);
+        this.failed = Collections.unmodifiableMap(failed);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return true if the commands of all members were accepted
+     */
+    public boolean isSuccess() {
+        return failed.isEmpty();
+    }
+
+    /**
+     * Prepares the failed commands again, with the same control data and chunk size.
+     *
+     * @return the action, which completes with an empty result at once if nothing failed
+     */
+    public GroupControlAction retryFailed() {
+        return new GroupControlAction(instance, new LinkedHashMap<>(failed)).maxChunkSize(maxChunkSize);
+    }
+
+}
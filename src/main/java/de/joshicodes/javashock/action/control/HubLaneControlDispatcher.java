@@ -0,0 +1,171 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.object.Shocker;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Passes commands on in order per hub and in parallel across hubs. <br>
+ * Every hub has a lane with one command in flight, the next command of the hub is passed on when it completed,
+ * so commands to shockers of the same hub arrive in the order they were issued.
+ * Lanes are a lock-free queue and a counter: the caller that finds a lane idle passes its command on,
+ * the completion of a command passes on the next one. A waiting command whose future was cancelled is skipped.
+ * <br><br>
+ * Commands are passed on through the given executor, or on the completing thread if it is null, which is fine since passing on does not block.
+ */
+public class HubLaneControlDispatcher implements ControlDispatcher {
+
+    /**
+     * The lane of shockers without a known hub.
+     */
+    private static final String NO_HUB = "";
+
+    private final ControlDispatcher delegate;
+    private final Executor executor;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * @param delegate the dispatcher the commands are passed on to
+     * @param executor the executor the commands are passed on with, null to pass them on directly
+     */
+    public HubLaneControlDispatcher(final ControlDispatcher delegate, final Executor executor) {
+        if (delegate == null)
+            throw new IllegalArgumentException("Delegate cannot be null");
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data) {
+        return dispatch(shocker, data, ControlOptions.DEFAULT);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data, final ControlOptions options) {
+        if (closed)
+            return CompletableFuture.failedFuture(new IllegalStateException("JavaShock was shut down"));
+        final String hubId = shocker.getHubId() != null ? shocker.getHubId() : NO_HUB;
+        final Lane lane = lanes.computeIfAbsent(hubId, id -> new Lane());
+        final PendingControl control = new PendingControl(shocker, data, options, new CompletableFuture<>());
+        lane.queue.offer(control);
+        // the first command of an idle lane starts it, later ones are passed on by the completion of their predecessor
+        if (lane.depth.getAndIncrement() == 0)
+            passOn(lane);
+        return control.future();
+    }
+
+    /**
+     * @param hubId the id of the hub
+     * @return the number of commands of the hub that are in flight or waiting
+     */
+    public int getQueueDepth(final String hubId) {
+        final Lane lane = lanes.get(hubId != null ? hubId : NO_HUB);
+        return lane == null ? 0 : lane.depth.get();
+    }
+
+    /**
+     * @return the number of commands in flight or waiting per hub id, hubs without commands are left out
+     */
+    public Map<String, Integer> getQueueDepths() {
+        final Map<String, Integer> depths = new HashMap<>();
+        lanes.forEach((hubId, lane) -> {
+            final int depth = lane.depth.get();
+            if (depth > 0) depths.put(hubId, depth);
+        });
+        return Collections.unmodifiableMap(depths);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        final IllegalStateException exception = new IllegalStateException("JavaShock was shut down");
+        for (final Lane lane : lanes.values()) {
+            PendingControl control;
+            while ((control = lane.queue.poll()) != null) {
+                control.future().completeExceptionally(exception);
+            }
+        }
+        delegate.close();
+    }
+
+    private void passOn(final Lane lane) {
+        if (executor == null) {
+            sendNext(lane);
+            return;
+        }
+        try {
+            executor.execute(() -> sendNext(lane));
+        } catch (RuntimeException e) {
+            // e.g. rejected after shutdown, fail the command so the lane does not stall
+            final PendingControl control = lane.queue.poll();
+            if (control != null) control.future().completeExceptionally(e);
+            completed(lane);
+        }
+    }
+
+    private void sendNext(final Lane lane) {
+        while (true) {
+            final PendingControl control = lane.queue.poll();
+            // only null if the queue was drained by close()
+            if (control == null) return;
+            // cancelled while it waited
+            if (control.future().isDone()) {
+                if (lane.depth.decrementAndGet() == 0) return;
+                continue;
+            }
+            CompletableFuture<Boolean> result;
+            try {
+                result = delegate.dispatch(control.shocker(), control.data(), control.options());
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            final CompletableFuture<Boolean> sent = result;
+            control.future().whenComplete((value, error) -> {
+                if (control.future().isCancelled()) sent.cancel(true);
+            });
+            if (!result.isDone()) {
+                result.whenComplete((value, error) -> {
+                    complete(control, value, error);
+                    completed(lane);
+                });
+                return;
+            }
+            // loop instead of recursing, commands that complete at once would overflow the stack otherwise
+            result.whenComplete((value, error) -> complete(control, value, error));
+            if (lane.depth.decrementAndGet() == 0) return;
+        }
+    }
+
+    private static void complete(final PendingControl control, final Boolean value, final Throwable error) {
+        if (error == null) control.future().complete(value);
+        else control.future().completeExceptionally(error);
+    }
+
+    private void completed(final Lane lane) {
+        if (lane.depth.decrementAndGet() > 0)
+            passOn(lane);
+    }
+
+    private static final class Lane {
+
+        private final Queue<PendingControl> queue = new ConcurrentLinkedQueue<>();
+        /**
+         * The commands in flight and waiting, a lane is idle at 0.
+         */
+        private final AtomicInteger depth = new AtomicInteger();
+
+    }
+
+    private record PendingControl(Shocker shocker, ControlData data, ControlOptions options, CompletableFuture<Boolean> future) {
+    }
+
+}
@@ -0,0 +1,226 @@
+package de.joshicodes.javashock.action.control.pattern;
+
+import de.joshicodes.javashock.action.control.ControlData;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable sequence of {@link PatternStep steps}, played by a {@link PatternScheduler}. <br>
+ * Patterns are built with {@link #builder()} and can be shared between any number of shockers and plays.
+ * <pre>{@code
+ * Pattern pattern = Pattern.builder()
+ *         .ramp(ControlData.ControlType.VIBRATE, 10, 80, 8, 4, TimeUnit.SECONDS)
+ *         .pulse(ControlData.ControlType.VIBRATE, 80, 500, 250, 4, TimeUnit.MILLISECONDS)
+ *         .build();
+ * PatternHandle handle = shocker.play(pattern);
+ * }</pre>
+ *
+ * @see PatternScheduler
+ */
+public final class Pattern {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Getter
+    private final List<PatternStep> steps;
+    /**
+     * The start of every step in milliseconds, relative to the start of the pattern.
+     */
+    private final long[] offsets;
+    /**
+     * The duration of one run in milliseconds.
+     */
+    @Getter
+    private final long duration;
+    /**
+     * If the pattern starts over after its last step until it is stopped.
+     */
+    @Getter
+    private final boolean loop;
+
+    private Pattern(final List<PatternStep> steps, final boolean loop) {
+        this.steps = List.copyOf(steps);
+        this.offsets = new long[this.steps.size()];
+        long offset = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = offset;
+            offset += this.steps.get(i).duration();
+        }
+        this.duration = offset;
+        this.loop = loop;
+    }
+
+    /**
+     * @param index the index of the step
+     * @return the start of the step in milliseconds, relative to the start of the pattern
+     */
+    public long getOffset(final int index) {
+        return offsets[index];
+    }
+
+    public static class Builder {
+
+        private final List<PatternStep> steps = new ArrayList<>();
+        private boolean loop;
+
+        private Builder() {
+        }
+
+        /**
+         * @param step the step to append
+         * @return this builder
+         */
+        public Builder step(final PatternStep step) {
+            if (step == null)
+                throw new IllegalArgumentException("Step cannot be null");
+            steps.add(step);
+            return this;
+        }
+
+        /**
+         * Appends a single command.
+         *
+         * @param type      the control type
+         * @param intensity the intensity
+         * @param duration  the duration
+         * @param unit      the time unit of the duration
+         * @return this builder
+         */
+        public Builder step(final ControlData.ControlType type, final int intensity, final long duration, final TimeUnit unit) {
+            if (type == null)
+                throw new IllegalArgumentException("Type cannot be null");
+            return step(new PatternStep(type, intensity, unit.toMillis(duration)));
+        }
+
+        /**
+         * @param duration the duration
+         * @param unit     the time unit of the duration
+         * @return this builder
+         * @see PatternStep#pause(long)
+         */
+        public Builder pause(final long duration, final TimeUnit unit) {
+            return step(PatternStep.pause(unit.toMillis(duration)));
+        }
+
+        /**
+         * Appends commands that alternate with pauses.
+         *
+         * @param type      the control type
+         * @param intensity the intensity of every pulse
+         * @param on        the duration of a pulse
+         * @param off       the pause after a pulse, 0 for none
+         * @param count     the number of pulses
+         * @param unit      the time unit of the durations
+         * @return this builder
+         */
+        public Builder pulse(final ControlData.ControlType type, final int intensity, final long on, final long off, final int count, final TimeUnit unit) {
+            if (count < 1)
+                throw new IllegalArgumentException("Count must be at least 1");
+            for (int i = 0; i < count; i++) {
+                step(type, intensity, on, unit);
+                if (off > 0) pause(off, unit);
+            }
+            return this;
+        }
+
+        /**
+         * Appends commands whose intensity changes linearly from {@code from} to {@code to}.
+         *
+         * @param type     the control type
+         * @param from     the intensity of the first step
+         * @param to       the intensity of the last step
+         * @param count    the number of steps, at least 2
+         * @param duration the duration of the whole ramp, split evenly between the steps
+         * @param unit     the time unit of the duration
+         * @return this builder
+         */
+        public Builder ramp(final ControlData.ControlType type, final int from, final int to, final int count, final long duration, final TimeUnit unit) {
+            if (count < 2)
+                throw new IllegalArgumentException("Count must be at least 2");
+            final long[] durations = split(unit.toMillis(duration), count);
+            for (int i = 0; i < count; i++) {
+                final int intensity = Math.round(from + (to - from) * (float) i / (count - 1));
+                step(type, intensity, durations[i], TimeUnit.MILLISECONDS);
+            }
+            return this;
+        }
+
+        /**
+         * Appends commands whose intensity follows a sine wave between {@code min} and {@code max}, starting at {@code min}.
+         *
+         * @param type     the control type
+         * @param min      the lowest intensity
+         * @param max      the highest intensity
+         * @param period   the duration of one wave
+         * @param cycles   the number of waves
+         * @param count    the number of steps per wave, at least 2
+         * @param unit     the time unit of the period
+         * @return this builder
+         */
+        public Builder wave(final ControlData.ControlType type, final int min, final int max, final long period, final int cycles, final int count, final TimeUnit unit) {
+            if (cycles < 1)
+                throw new IllegalArgumentException("Cycles must be at least 1");
+            if (count < 2)
+                throw new IllegalArgumentException("Count must be at least 2");
+            final long[] durations = split(unit.toMillis(period), count);
+            for (int cycle = 0; cycle < cycles; cycle++) {
+                for (int i = 0; i < count; i++) {
+                    final double phase = 2 * Math.PI * i / count;
+                    final int intensity = (int) Math.round(min + (max - min) * (1 - Math.cos(phase)) / 2);
+                    step(type, intensity, durations[i], TimeUnit.MILLISECONDS);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Repeats all steps added so far.
+         *
+         * @param times the number of runs in total, 1 changes nothing
+         * @return this builder
+         */
+        public Builder repeat(final int times) {
+            if (times < 1)
+                throw new IllegalArgumentException("Times must be at least 1");
+            final List<PatternStep> run = List.copyOf(steps);
+            for (int i = 1; i < times; i++) {
+                steps.addAll(run);
+            }
+            return this;
+        }
+
+        /**
+         * Plays the pattern over and over until it is stopped.
+         *
+         * @return this builder
+         */
+        public Builder loop() {
+            this.loop = true;
+            return this;
+        }
+
+        public Pattern build() {
+            if (steps.isEmpty())
+                throw new IllegalArgumentException("Steps cannot be empty");
+            return new Pattern(steps, loop);
+        }
+
+        /**
+         * Splits a duration into parts that add up to it exactly, so the steps do not drift against the whole.
+         */
+        private static long[] split(final long duration, final int count) {
+            final long[] parts = new long[count];
+            for (int i = 0; i < count; i++) {
+                parts[i] = duration * (i + 1) / count - duration * i / count;
+            }
+            return parts;
+        }
+
+    }
+
+}
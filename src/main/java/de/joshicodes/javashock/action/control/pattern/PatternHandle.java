@@ -0,0 +1,228 @@
+package de.joshicodes.javashock.action.control.pattern;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.action.control.ControlData;
+import de.joshicodes.javashock.action.control.ControlRequestAction;
+import de.joshicodes.javashock.http.Deadline;
+import de.joshicodes.javashock.http.DeadlineExceededException;
+import de.joshicodes.javashock.object.Shocker;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pattern that was started by a {@link PatternScheduler}. <br>
+ * {@link #getFuture()} completes with true when the last step ended, with false when the pattern was stopped,
+ * or exceptionally when a step could not be sent, which also ends the pattern.
+ * A step that cannot be sent before its time is over is skipped, so it never arrives late.
+ */
+public class PatternHandle {
+
+    private final PatternScheduler scheduler;
+    private final JavaShock instance;
+
+    @Getter
+    private final Pattern pattern;
+    @Getter
+    private final List<Shocker> shockers;
+    @Getter
+    private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+    private final Object lock = new Object();
+    /**
+     * The step that is sent next, the size of the pattern for the end of a run.
+     */
+    private int index;
+    /**
+     * The time at which the current run should reach the shockers, in {@link System#nanoTime()}.
+     */
+    private long anchor;
+    private ScheduledFuture<?> task;
+    /**
+     * The last sent step, a stop waits for it so it cannot be overtaken.
+     */
+    private CompletableFuture<Boolean> inFlight;
+    private boolean done;
+
+    PatternHandle(final PatternScheduler scheduler, final JavaShock instance, final Pattern pattern, final List<Shocker> shockers) {
+        this.scheduler = scheduler;
+        this.instance = instance;
+        this.pattern = pattern;
+        this.shockers = shockers;
+    }
+
+    void start() {
+        synchronized (lock) {
+            // the first step is sent at once, its expected arrival is the start of the run
+            anchor = System.nanoTime() + scheduler.getLead();
+        }
+        runStep();
+    }
+
+    /**
+     * @return true if the pattern was neither stopped nor played to the end
+     */
+    public boolean isRunning() {
+        return !future.isDone();
+    }
+
+    /**
+     * @return the index of the step that is sent next
+     */
+    public int getStepIndex() {
+        synchronized (lock) {
+            return Math.min(index, pattern.getSteps().size() - 1);
+        }
+    }
+
+    /**
+     * Stops the pattern and sends {@link ControlData.ControlType#STOP} to its shockers. <br>
+     * If a step is still being sent, the stop is sent after it, so the step cannot arrive last.
+     *
+     * @return a future that completes with the result of the stop command, or true if the pattern had already ended
+     */
+    public CompletableFuture<Boolean> stop() {
+        final CompletableFuture<Boolean> previous;
+        synchronized (lock) {
+            if (done) return CompletableFuture.completedFuture(true);
+            end();
+            previous = inFlight;
+        }
+        future.complete(false);
+        if (previous == null || previous.isDone())
+            return sendStop();
+        return previous.handle((result, error) -> null).thenCompose(ignored -> sendStop());
+    }
+
+    /**
+     * Ends the pattern without sending a stop.
+     */
+    void cancel() {
+        synchronized (lock) {
+            if (done) return;
+            end();
+        }
+        future.complete(false);
+    }
+
+    private void runStep() {
+        final List<PatternStep> steps = pattern.getSteps();
+        final PatternStep step;
+        final long stepEnd;
+        synchronized (lock) {
+            if (done) return;
+            task = null;
+            if (index == steps.size()) {
+                end();
+                step = null;
+                stepEnd = 0;
+            } else {
+                step = steps.get(index);
+                stepEnd = anchor + TimeUnit.MILLISECONDS.toNanos(pattern.getOffset(index) + step.duration());
+            }
+        }
+        if (step == null) {
+            future.complete(true);
+            return;
+        }
+        final long sentAt = System.nanoTime();
+        // a step whose time is already over, e.g. after the scheduler fell behind, is skipped
+        if (!step.isPause() && stepEnd > sentAt) {
+            final CompletableFuture<Boolean> sent;
+            try {
+                sent = send(step.toControlData(), Deadline.after(Duration.ofNanos(stepEnd - sentAt)));
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            synchronized (lock) {
+                inFlight = sent;
+            }
+            sent.whenComplete((result, error) -> {
+                if (error != null) {
+                    // the step could not be sent in its time and was dropped, the next one is still on time
+                    if (!(unwrap(error) instanceof DeadlineExceededException)) fail(error);
+                    return;
+                }
+                // false if a conflating dispatcher replaced the step with a newer one, which is not an error
+                if (Boolean.TRUE.equals(result)) scheduler.recordLatency(System.nanoTime() - sentAt);
+            });
+        }
+        scheduleNext();
+    }
+
+    private void scheduleNext() {
+        synchronized (lock) {
+            if (done) return;
+            index++;
+            if (index == pattern.getSteps().size() && pattern.isLoop()) {
+                index = 0;
+                anchor += TimeUnit.MILLISECONDS.toNanos(pattern.getDuration());
+            }
+            final long deadline = index == pattern.getSteps().size()
+                    // the end is not sent anywhere, so it is not moved ahead
+                    ? anchor + TimeUnit.MILLISECONDS.toNanos(pattern.getDuration())
+                    : anchor + TimeUnit.MILLISECONDS.toNanos(pattern.getOffset(index)) - scheduler.getLead();
+            final long delay = Math.max(0, deadline - System.nanoTime());
+            try {
+                task = instance.getScheduler().schedule(this::runStep, delay, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                end();
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void fail(final Throwable error) {
+        synchronized (lock) {
+            if (done) return;
+            end();
+        }
+        future.completeExceptionally(error);
+    }
+
+    /**
+     * Marks the pattern as done, must hold the lock.
+     */
+    private void end() {
+        done = true;
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        scheduler.remove(this);
+    }
+
+    /**
+     * @param deadline the deadline of the command, or null for the timeout of the instance
+     */
+    private CompletableFuture<Boolean> send(final ControlData data, final Deadline deadline) {
+        final ControlRequestAction action = new ControlRequestAction(instance);
+        if (deadline != null) action.deadline(deadline);
+        for (final Shocker shocker : shockers) {
+            action.addShockControl(shocker, data);
+        }
+        return action.submit();
+    }
+
+    private CompletableFuture<Boolean> sendStop() {
+        try {
+            return send(new ControlData(ControlData.ControlType.STOP, 0, 0), null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+}
@@ -0,0 +1,115 @@
+package de.joshicodes.javashock.action.control.pattern;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.object.Shocker;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays {@link Pattern patterns} on the scheduler of a {@link JavaShock} instance. <br>
+ * Steps are not slept through one after another, every step is scheduled at its own deadline on the monotonic clock,
+ * relative to the start of the pattern. A slow request therefore delays only its own step, not all following ones,
+ * and any number of patterns share the single scheduler thread, since sending a step does not block.
+ * <br><br>
+ * Commands reach the shocker some time after they were sent. The scheduler keeps a smoothed round trip time of the sent steps
+ * and sends every step half of it early, so the steps keep their spacing when the latency changes during a pattern.
+ *
+ * @see JavaShock#getPatternScheduler()
+ * @see Shocker#play(Pattern)
+ */
+public class PatternScheduler {
+
+    /**
+     * Steps are never sent earlier than this, even if the latency is higher.
+     */
+    private static final long MAX_LEAD = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final JavaShock instance;
+    private final Set<PatternHandle> running = ConcurrentHashMap.newKeySet();
+    private volatile long latencyNanos = -1;
+    private volatile boolean closed;
+
+    public PatternScheduler(final JavaShock instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * Starts a pattern on the given shockers. Every step is sent to all of them in one request.
+     *
+     * @param pattern  the pattern
+     * @param shockers the shockers
+     * @return the handle of the running pattern
+     */
+    public PatternHandle play(final Pattern pattern, final Collection<Shocker> shockers) {
+        if (pattern == null)
+            throw new IllegalArgumentException("Pattern cannot be null");
+        if (shockers == null || shockers.isEmpty())
+            throw new IllegalArgumentException("Shockers cannot be empty");
+        if (closed)
+            throw new IllegalStateException("JavaShock was shut down");
+        final PatternHandle handle = new PatternHandle(this, instance, pattern, List.copyOf(shockers));
+        running.add(handle);
+        handle.start();
+        return handle;
+    }
+
+    /**
+     * @param pattern  the pattern
+     * @param shockers the shockers
+     * @return the handle of the running pattern
+     * @see #play(Pattern, Collection)
+     */
+    public PatternHandle play(final Pattern pattern, final Shocker... shockers) {
+        return play(pattern, Arrays.asList(shockers));
+    }
+
+    /**
+     * @return the number of patterns that are currently playing
+     */
+    public int getRunningCount() {
+        return running.size();
+    }
+
+    /**
+     * @return the smoothed round trip time of the sent steps, or null if no step was sent yet
+     */
+    public Duration getLatency() {
+        final long latency = latencyNanos;
+        return latency < 0 ? null : Duration.ofNanos(latency);
+    }
+
+    /**
+     * Stops all patterns without sending {@link de.joshicodes.javashock.action.control.ControlData.ControlType#STOP},
+     * called when the instance is shut down.
+     */
+    public void close() {
+        closed = true;
+        for (final PatternHandle handle : running) {
+            handle.cancel();
+        }
+    }
+
+    /**
+     * @return how much earlier than its deadline a step is sent
+     */
+    long getLead() {
+        final long latency = latencyNanos;
+        return latency < 0 ? 0 : Math.min(MAX_LEAD, latency / 2);
+    }
+
+    void recordLatency(final long latency) {
+        final long previous = latencyNanos;
+        latencyNanos = previous < 0 ? latency : previous - previous / 8 + latency / 8;
+    }
+
+    void remove(final PatternHandle handle) {
+        running.remove(handle);
+    }
+
+}
@@ -0,0 +1,50 @@
+package de.joshicodes.javashock.action.control.pattern;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.action.control.ControlData;
+
+/**
+ * A single step of a {@link Pattern}. <br>
+ * A step sends one control command that lasts for its duration, the next step starts when the duration elapsed.
+ * A pause has no type and sends nothing.
+ *
+ * @param type      the control type, null for a pause
+ * @param intensity the intensity between 0 and 100
+ * @param duration  the duration in milliseconds
+ */
+public record PatternStep(ControlData.ControlType type, int intensity, long duration) {
+
+    public PatternStep {
+        if (type == ControlData.ControlType.STOP)
+            throw new IllegalArgumentException("Type cannot be STOP, use a pause instead");
+        if (intensity < 0 || intensity > 100)
+            throw new IllegalArgumentException("Intensity must be between 0 and 100");
+        if (duration < 1 || (type != null && duration > JavaShock.MAX_SHOCK_DURATION))
+            throw new IllegalArgumentException("Duration must be between 1 and " + JavaShock.MAX_SHOCK_DURATION);
+    }
+
+    /**
+     * Creates a step that sends nothing for the given duration.
+     *
+     * @param duration the duration in milliseconds
+     * @return the step
+     */
+    public static PatternStep pause(final long duration) {
+        return new PatternStep(null, 0, duration);
+    }
+
+    /**
+     * @return true if this step sends nothing
+     */
+    public boolean isPause() {
+        return type == null;
+    }
+
+    /**
+     * @return the control data sent for this step, null for a pause
+     */
+    public ControlData toControlData() {
+        return type == null ? null : new ControlData(type, intensity, duration);
+    }
+
+}
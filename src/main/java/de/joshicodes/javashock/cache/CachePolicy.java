@@ -0,0 +1,118 @@
+package de.joshicodes.javashock.cache;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Controls how long cached shockers stay valid and how the cache is refreshed.
+ * The default policy keeps everything forever and never refreshes, like previous versions.
+ *
+ * @see #builder()
+ */
+@Getter
+public class CachePolicy {
+
+    public static final CachePolicy DEFAULT = builder().build();
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * How long a cached shocker is valid after it was loaded, null if it never expires.
+     */
+    private final Duration ttl;
+    /**
+     * How long before the ttl runs out an access triggers a refresh in the background, null to disable.
+     */
+    private final Duration refreshAhead;
+    /**
+     * The interval of the scheduled full refresh of {@code /1/shockers/own}, null to disable.
+     */
+    private final Duration refreshInterval;
+    /**
+     * The max number of shockers in the index, 0 for no limit.
+     */
+    private final int maximumSize;
+
+    private CachePolicy(final Builder builder) {
+        this.ttl = builder.ttl;
+        this.refreshAhead = builder.refreshAhead;
+        this.refreshInterval = builder.refreshInterval;
+        this.maximumSize = builder.maximumSize;
+    }
+
+    public static class Builder {
+
+        private Duration ttl;
+        private Duration refreshAhead;
+        private Duration refreshInterval;
+        private int maximumSize;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets how long a cached shocker is valid. Expired shockers are treated as not cached.
+         *
+         * @param ttl the time to live, or null to never expire (default)
+         * @return this builder
+         */
+        public Builder ttl(final Duration ttl) {
+            if (ttl != null && (ttl.isNegative() || ttl.isZero()))
+                throw new IllegalArgumentException("TTL must be positive");
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Sets how long before its ttl runs out an accessed shocker is refreshed in the background.
+         * The cached shocker is still returned while the refresh runs.
+         *
+         * @param refreshAhead the window before expiry, or null to disable (default)
+         * @return this builder
+         */
+        public Builder refreshAhead(final Duration refreshAhead) {
+            if (refreshAhead != null && refreshAhead.isNegative())
+                throw new IllegalArgumentException("Refresh ahead cannot be negative");
+            this.refreshAhead = refreshAhead;
+            return this;
+        }
+
+        /**
+         * Sets the interval in which all hubs and shockers are refreshed in the background.
+         *
+         * @param refreshInterval the interval, or null to disable (default)
+         * @return this builder
+         */
+        public Builder refreshInterval(final Duration refreshInterval) {
+            if (refreshInterval != null && (refreshInterval.isNegative() || refreshInterval.isZero()))
+                throw new IllegalArgumentException("Refresh interval must be positive");
+            this.refreshInterval = refreshInterval;
+            return this;
+        }
+
+        /**
+         * Limits the number of indexed shockers. If the limit is exceeded, the least recently accessed shockers are evicted.
+         * Evicted shockers stay in the shocker list of their hub.
+         *
+         * @param maximumSize the limit, or 0 for no limit (default)
+         * @return this builder
+         */
+        public Builder maximumSize(final int maximumSize) {
+            if (maximumSize < 0)
+                throw new IllegalArgumentException("Maximum size cannot be negative");
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public CachePolicy build() {
+            if (refreshAhead != null && ttl == null)
+                throw new IllegalArgumentException("Refresh ahead requires a TTL");
+            return new CachePolicy(this);
+        }
+
+    }
+
+}
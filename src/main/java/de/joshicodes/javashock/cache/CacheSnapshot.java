@@ -0,0 +1,184 @@
+package de.joshicodes.javashock.cache;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.action.GetShockerAction;
+import de.joshicodes.javashock.object.DeviceHub;
+import de.joshicodes.javashock.object.Shocker;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The hubs and shockers of a {@link ShockerCache}, saved to a local file so a new process can start with them. <br>
+ * The file is a small binary format: a magic number and version, the account it belongs to,
+ * the validators of the list it was loaded from, the time it was saved and the hubs with their shockers.
+ * It is replaced atomically when saved, so readers never see a partially written file.
+ * <br><br>
+ * Shockers whose hub is not cached (e.g. shared shockers fetched by id) are not saved.
+ */
+public final class CacheSnapshot {
+
+    /**
+     * {@code JSCS} in ASCII.
+     */
+    private static final int MAGIC = 0x4A534353;
+    private static final short VERSION = 2;
+
+    /**
+     * Identifies the account and API host the snapshot belongs to, see {@link #getOwner(JavaShock)}.
+     */
+    @Getter
+    private final String owner;
+    /**
+     * The validator of the shocker list the snapshot was taken from, null if the API did not send one.
+     */
+    @Getter
+    private final CacheValidator validator;
+    @Getter
+    private final Instant savedAt;
+    @Getter
+    private final Map<DeviceHub, List<Shocker>> hubs;
+
+    private CacheSnapshot(final String owner, final CacheValidator validator, final Instant savedAt, final Map<DeviceHub, List<Shocker>> hubs) {
+        this.owner = owner;
+        this.validator = validator;
+        this.savedAt = savedAt;
+        this.hubs = hubs;
+    }
+
+    /**
+     * Saves the cached hubs and their shockers.
+     *
+     * @param instance the instance whose cache is saved
+     * @param file     the file, replaced if it exists
+     * @throws IOException if the file could not be written
+     */
+    public static void save(final JavaShock instance, final Path file) throws IOException {
+        final ShockerCache cache = instance.getCache();
+        final CacheValidator validator = cache.getValidator(GetShockerAction.ENDPOINT);
+        final Collection<DeviceHub> hubs = cache.getHubs();
+        final Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) Files.createDirectories(directory);
+        final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeUTF(getOwner(instance));
+                writeString(out, validator == null ? null : validator.etag());
+                writeString(out, validator == null ? null : validator.lastModified());
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(hubs.size());
+                for (final DeviceHub hub : hubs) {
+                    final List<Shocker> shockers = List.copyOf(hub.getShockers());
+                    out.writeUTF(hub.getId());
+                    writeString(out, hub.getName());
+                    out.writeInt(shockers.size());
+                    for (final Shocker shocker : shockers) {
+                        out.writeUTF(shocker.getId());
+                        writeString(out, shocker.getName());
+                        out.writeLong(shocker.getRfId());
+                        writeString(out, shocker.getModel());
+                        out.writeBoolean(shocker.isPaused());
+                    }
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a snapshot. The hubs and shockers are created for the given instance, but not cached.
+     *
+     * @param instance the instance the hubs and shockers are created for
+     * @param file     the file
+     * @return the snapshot
+     * @throws IOException if the file could not be read or is not a snapshot of this version
+     */
+    public static CacheSnapshot read(final JavaShock instance, final Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a cache snapshot: " + file);
+            final short version = in.readShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported cache snapshot version " + version + ": " + file);
+            final String owner = in.readUTF();
+            final String etag = readString(in);
+            final String lastModified = readString(in);
+            final Instant savedAt = Instant.ofEpochMilli(in.readLong());
+            final int hubCount = in.readInt();
+            final Map<DeviceHub, List<Shocker>> hubs = new HashMap<>();
+            for (int i = 0; i < hubCount; i++) {
+                final String hubId = in.readUTF();
+                final DeviceHub hub = new DeviceHub(instance, hubId, readString(in));
+                final int shockerCount = in.readInt();
+                final List<Shocker> shockers = new ArrayList<>(Math.min(shockerCount, 1024));
+                for (int j = 0; j < shockerCount; j++) {
+                    final String id = in.readUTF();
+                    final String name = readString(in);
+                    final long rfId = in.readLong();
+                    final String model = readString(in);
+                    final boolean paused = in.readBoolean();
+                    shockers.add(new Shocker(instance, id, name, rfId, model, paused, hubId));
+                }
+                hubs.put(hub, shockers);
+            }
+            final CacheValidator validator = etag == null && lastModified == null ? null : new CacheValidator(etag, lastModified);
+            return new CacheSnapshot(owner, validator, savedAt, hubs);
+        }
+    }
+
+    /**
+     * Returns a hash of the API host and token of an instance, so a snapshot is never loaded for another account.
+     * The token itself is not written to the file.
+     *
+     * @param instance the instance
+     * @return the hash, Base64 encoded
+     */
+    public static String getOwner(final JavaShock instance) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(instance.getApiHost().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(instance.getToken().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+}
@@ -0,0 +1,117 @@
+package de.joshicodes.javashock.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a {@link ShockerCache}. All counters only increase.
+ */
+public class CacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordExpiration() {
+        expirations.increment();
+    }
+
+    void recordEvictions(final int count) {
+        evictions.add(count);
+    }
+
+    void recordNotModified() {
+        notModified.increment();
+    }
+
+    /**
+     * Records a finished refresh.
+     *
+     * @param success true if the refresh succeeded
+     */
+    public void recordRefresh(final boolean success) {
+        if (success) refreshes.increment();
+        else refreshFailures.increment();
+    }
+
+    /**
+     * @return the lookups that found a valid shocker
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the lookups that found no shocker or an expired one
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the lookups that found an expired shocker, these are also counted as misses
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return the shockers removed because the cache exceeded its maximum size
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the successful refreshes
+     */
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    /**
+     * @return the failed refreshes
+     */
+    public long getRefreshFailures() {
+        return refreshFailures.sum();
+    }
+
+    /**
+     * @return the refreshes answered with {@code 304 Not Modified}, which kept the cached shockers without downloading them again
+     */
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    /**
+     * @return the ratio of hits to all lookups, 0 if there were none
+     */
+    public double getHitRatio() {
+        final long hits = getHits();
+        final long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + getHits()
+                + ", misses=" + getMisses()
+                + ", expirations=" + getExpirations()
+                + ", evictions=" + getEvictions()
+                + ", refreshes=" + getRefreshes()
+                + ", refreshFailures=" + getRefreshFailures()
+                + ", notModified=" + getNotModified() + "}";
+    }
+
+}
@@ -0,0 +1,40 @@
+package de.joshicodes.javashock.cache;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * The validators of a response, sent with the next request to the same endpoint
+ * so the API can answer with {@code 304 Not Modified} instead of the full body. <br>
+ * The ETag is preferred, the {@code Last-Modified} date is only used by servers that do not send one.
+ *
+ * @param etag         the {@code ETag} header, can be null
+ * @param lastModified the {@code Last-Modified} header, can be null
+ * @see ShockerCache#getValidator(String)
+ */
+public record CacheValidator(String etag, String lastModified) {
+
+    /**
+     * @param response the response
+     * @return the validators of the response, or null if it has none
+     */
+    public static CacheValidator of(final HttpResponse<?> response) {
+        final String etag = response.headers().firstValue("ETag").orElse(null);
+        final String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        if (etag == null && lastModified == null) return null;
+        return new CacheValidator(etag, lastModified);
+    }
+
+    /**
+     * Makes a request conditional.
+     *
+     * @param request the request
+     * @return the request with {@code If-None-Match} and {@code If-Modified-Since} set
+     */
+    public HttpRequest.Builder apply(final HttpRequest.Builder request) {
+        if (etag != null) request.setHeader("If-None-Match", etag);
+        if (lastModified != null) request.setHeader("If-Modified-Since", lastModified);
+        return request;
+    }
+
+}
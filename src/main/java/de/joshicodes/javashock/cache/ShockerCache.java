@@ -0,0 +1,371 @@
+package de.joshicodes.javashock.cache;
+
+import de.joshicodes.javashock.object.DeviceHub;
+import de.joshicodes.javashock.object.Shocker;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe cache of hubs and their shockers, indexed by id. <br>
+ * Lookups read an immutable snapshot without locking and take constant time.
+ * Writers copy the snapshot and publish the new one atomically, so readers never see a half applied update.
+ * <br><br>
+ * Expiry, refresh-ahead and the size limit are configured with a {@link CachePolicy}.
+ * <br><br>
+ * The cache also keeps the {@link CacheValidator} of every endpoint it was loaded from,
+ * so refreshes can be sent as conditional requests and a {@code 304 Not Modified} keeps the cached objects.
+ */
+public class ShockerCache {
+
+    @Getter
+    private final CachePolicy policy;
+    @Getter
+    private final CacheStats stats;
+
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final Consumer<Shocker> refreshAhead;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * The validators of the last responses the cache was loaded from, by endpoint.
+     */
+    private final Map<String, CacheValidator> validators = new ConcurrentHashMap<>();
+
+    public ShockerCache() {
+        this(CachePolicy.DEFAULT, null);
+    }
+
+    /**
+     * @param policy       the policy
+     * @param refreshAhead called with a shocker that should be refreshed in the background, can be null
+     */
+    public ShockerCache(final CachePolicy policy, final Consumer<Shocker> refreshAhead) {
+        this.policy = policy;
+        this.stats = new CacheStats();
+        this.ttlNanos = policy.getTtl() == null ? 0 : policy.getTtl().toNanos();
+        this.refreshAfterNanos = policy.getRefreshAhead() == null ? 0 : Math.max(0, ttlNanos - policy.getRefreshAhead().toNanos());
+        this.refreshAhead = refreshAhead;
+    }
+
+    /**
+     * Looks up a shocker. Expired shockers are treated as not cached.
+     *
+     * @param shockerId the id of the shocker
+     * @return the cached shocker, or null if not cached or expired
+     */
+    public Shocker getShocker(final String shockerId) {
+        final Entry entry = shockerId == null ? null : snapshot.shockers().get(shockerId);
+        if (entry == null) {
+            stats.recordMiss();
+            return null;
+        }
+        final long now = System.nanoTime();
+        if (ttlNanos > 0) {
+            final long age = now - entry.loadedAt;
+            if (age >= ttlNanos) {
+                stats.recordExpiration();
+                stats.recordMiss();
+                return null;
+            }
+            if (refreshAhead != null && refreshAfterNanos > 0 && age >= refreshAfterNanos && entry.markRefreshing()) {
+                refreshAhead.accept(entry.shocker);
+            }
+        }
+        entry.lastAccess = now;
+        stats.recordHit();
+        return entry.shocker;
+    }
+
+    /**
+     * @param hubId the id of the hub
+     * @return the cached hub, or null if not cached
+     */
+    public DeviceHub getHub(final String hubId) {
+        if (hubId == null) return null;
+        return snapshot.hubs().get(hubId);
+    }
+
+    /**
+     * @return an unmodifiable view of all cached hubs
+     */
+    public Collection<DeviceHub> getHubs() {
+        return Collections.unmodifiableCollection(snapshot.hubs().values());
+    }
+
+    /**
+     * @return all indexed shockers, including expired ones and shockers whose hub is not cached
+     */
+    public List<Shocker> getShockers() {
+        final Collection<Entry> entries = snapshot.shockers().values();
+        final List<Shocker> list = new ArrayList<>(entries.size());
+        entries.forEach(entry -> list.add(entry.shocker));
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return the number of indexed shockers
+     */
+    public int size() {
+        return snapshot.shockers().size();
+    }
+
+    /**
+     * Caches a hub with its shockers. A cached hub with the same id is replaced,
+     * shockers that belonged to it but are not in the given list are removed.
+     *
+     * @param hub      the hub
+     * @param shockers the shockers of the hub
+     */
+    public synchronized void putHub(final DeviceHub hub, final List<Shocker> shockers) {
+        final Snapshot current = snapshot;
+        if (current.hubs().get(hub.getId()) == hub && isCached(current, hub, shockers)) {
+            // nothing changed, only mark the shockers as loaded instead of copying the whole cache
+            renew(current, hub.getId());
+            return;
+        }
+        final Map<String, DeviceHub> hubs = new HashMap<>(current.hubs());
+        final Map<String, Entry> entries = new HashMap<>(current.shockers());
+        final DeviceHub previous = hubs.put(hub.getId(), hub);
+        if (previous != null) {
+            previous.getShockers().forEach(shocker -> entries.remove(shocker.getId()));
+            keepState(previous, hub);
+        }
+        setShockers(hub, shockers);
+        final long now = System.nanoTime();
+        shockers.forEach(shocker -> entries.put(shocker.getId(), new Entry(shocker, now)));
+        publish(hubs, entries);
+    }
+
+    /**
+     * Caches a single shocker and replaces the shocker with the same id in its hub.
+     *
+     * @param hub     the hub of the shocker, can be null if the hub is not known (e.g. shared shockers)
+     * @param shocker the shocker
+     */
+    public synchronized void putShocker(final DeviceHub hub, final Shocker shocker) {
+        final Snapshot current = snapshot;
+        Map<String, DeviceHub> hubs = current.hubs();
+        final Map<String, Entry> entries = new HashMap<>(current.shockers());
+        entries.put(shocker.getId(), new Entry(shocker, System.nanoTime()));
+        if (hub != null) {
+            replaceShocker(hub.getShockers(), shocker);
+            if (hubs.get(hub.getId()) != hub) {
+                hubs = new HashMap<>(hubs);
+                hubs.put(hub.getId(), hub);
+            }
+        }
+        publish(hubs, entries);
+    }
+
+    /**
+     * Replaces all cached hubs and their shockers at once. <br>
+     * Shockers whose hub was not cached (e.g. shared shockers fetched by id) are kept.
+     *
+     * @param hubs the hubs with their shockers
+     */
+    public synchronized void replaceAll(final Map<DeviceHub, List<Shocker>> hubs) {
+        final Snapshot current = snapshot;
+        final Map<String, DeviceHub> hubMap = new HashMap<>();
+        final Map<String, Entry> entries = new HashMap<>();
+        current.shockers().values().forEach(entry -> {
+            if (!current.hubs().containsKey(entry.shocker.getHubId()))
+                entries.put(entry.shocker.getId(), entry);
+        });
+        final long now = System.nanoTime();
+        hubs.forEach((hub, shockers) -> {
+            final DeviceHub previousHub = current.hubs().get(hub.getId());
+            if (previousHub != null) keepState(previousHub, hub);
+            setShockers(hub, shockers);
+            hubMap.put(hub.getId(), hub);
+            shockers.forEach(shocker -> {
+                // keep the access time, so a refresh does not reset the eviction order
+                final Entry previous = current.shockers().get(shocker.getId());
+                final Entry entry = new Entry(shocker, now);
+                if (previous != null) entry.lastAccess = previous.lastAccess;
+                entries.put(shocker.getId(), entry);
+            });
+        });
+        publish(hubMap, entries);
+    }
+
+    /**
+     * Marks the cached shockers as loaded now, after the API answered a refresh with {@code 304 Not Modified}. <br>
+     * Nothing is copied or replaced, the cached objects stay in place.
+     *
+     * @param hubId the hub whose shockers are renewed, or null for the shockers of all cached hubs
+     */
+    public void renew(final String hubId) {
+        stats.recordNotModified();
+        renew(snapshot, hubId);
+    }
+
+    /**
+     * @param endpoint the endpoint, e.g. {@code /1/shockers/own}
+     * @return the validator of the last response of the endpoint the cache was loaded from, or null if there is none
+     */
+    public CacheValidator getValidator(final String endpoint) {
+        return validators.get(endpoint);
+    }
+
+    /**
+     * Sets the validator of an endpoint after the cache was loaded from its response.
+     *
+     * @param endpoint  the endpoint
+     * @param validator the validator, or null to remove it
+     */
+    public void setValidator(final String endpoint, final CacheValidator validator) {
+        if (validator == null) validators.remove(endpoint);
+        else validators.put(endpoint, validator);
+    }
+
+    /**
+     * Removes a hub and its shockers.
+     *
+     * @param hubId the id of the hub
+     * @return the removed hub, or null if it was not cached
+     */
+    public synchronized DeviceHub removeHub(final String hubId) {
+        final Snapshot current = snapshot;
+        if (hubId == null || !current.hubs().containsKey(hubId)) return null;
+        final Map<String, DeviceHub> hubs = new HashMap<>(current.hubs());
+        final Map<String, Entry> entries = new HashMap<>(current.shockers());
+        final DeviceHub removed = hubs.remove(hubId);
+        entries.values().removeIf(entry -> hubId.equals(entry.shocker.getHubId()));
+        publish(hubs, entries);
+        // the cache no longer matches the responses the validators belong to
+        validators.clear();
+        return removed;
+    }
+
+    /**
+     * Removes everything from the cache.
+     */
+    public synchronized void clear() {
+        snapshot = Snapshot.EMPTY;
+        validators.clear();
+    }
+
+    private void publish(final Map<String, DeviceHub> hubs, final Map<String, Entry> entries) {
+        final int maximumSize = policy.getMaximumSize();
+        if (maximumSize > 0 && entries.size() > maximumSize) {
+            final List<Entry> byAccess = new ArrayList<>(entries.values());
+            byAccess.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+            final int evict = entries.size() - maximumSize;
+            for (int i = 0; i < evict; i++) {
+                entries.remove(byAccess.get(i).shocker.getId());
+            }
+            stats.recordEvictions(evict);
+            // a 304 must not keep the cache without the evicted shockers
+            validators.clear();
+        }
+        snapshot = new Snapshot(hubs, entries);
+    }
+
+    /**
+     * @return true if the hub already has exactly these shocker instances and all of them are indexed
+     */
+    private static boolean isCached(final Snapshot current, final DeviceHub hub, final List<Shocker> shockers) {
+        final List<Shocker> list = hub.getShockers();
+        if (list.size() != shockers.size()) return false;
+        for (int i = 0; i < shockers.size(); i++) {
+            final Shocker shocker = shockers.get(i);
+            final Entry entry = current.shockers().get(shocker.getId());
+            if (list.get(i) != shocker || entry == null || entry.shocker != shocker) return false;
+        }
+        return true;
+    }
+
+    private static void renew(final Snapshot current, final String hubId) {
+        final long now = System.nanoTime();
+        for (final Entry entry : current.shockers().values()) {
+            final String entryHub = entry.shocker.getHubId();
+            if (hubId != null ? hubId.equals(entryHub) : current.hubs().containsKey(entryHub))
+                entry.renew(now);
+        }
+    }
+
+    /**
+     * Keeps the online state of a hub that is replaced by a refreshed instance, since it is not part of the API responses.
+     */
+    private static void keepState(final DeviceHub previous, final DeviceHub hub) {
+        if (previous == hub) return;
+        hub.setOnline(previous.isOnline());
+        hub.setFirmwareVersion(previous.getFirmwareVersion());
+    }
+
+    private static void setShockers(final DeviceHub hub, final List<Shocker> shockers) {
+        final List<Shocker> list = hub.getShockers();
+        if (list == shockers) return;
+        final Set<String> ids = new HashSet<>();
+        for (final Shocker shocker : shockers) {
+            replaceShocker(list, shocker);
+            ids.add(shocker.getId());
+        }
+        list.removeIf(shocker -> !ids.contains(shocker.getId()));
+    }
+
+    private static void replaceShocker(final List<Shocker> list, final Shocker shocker) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).getId().equals(shocker.getId())) {
+                list.set(i, shocker);
+                return;
+            }
+        }
+        list.add(shocker);
+    }
+
+    private static final class Entry {
+
+        private final Shocker shocker;
+        private volatile long loadedAt;
+        private volatile long lastAccess;
+        private volatile boolean refreshing;
+
+        private Entry(final Shocker shocker, final long loadedAt) {
+            this.shocker = shocker;
+            this.loadedAt = loadedAt;
+            this.lastAccess = loadedAt;
+        }
+
+        private void renew(final long now) {
+            loadedAt = now;
+            refreshing = false;
+        }
+
+        /**
+         * @return true if this call started the refresh, false if it was already started
+         */
+        private boolean markRefreshing() {
+            if (refreshing) return false;
+            synchronized (this) {
+                if (refreshing) return false;
+                refreshing = true;
+                return true;
+            }
+        }
+
+    }
+
+    /**
+     * The maps of a snapshot are never modified after it was published.
+     */
+    private record Snapshot(Map<String, DeviceHub> hubs, Map<String, Entry> shockers) {
+
+        private static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of());
+
+    }
+
+}
@@ -0,0 +1,168 @@
+package de.joshicodes.javashock.circuit;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+/**
+ * Tracks the outcomes of the requests of one route or hub and rejects requests while too many of them fail. <br>
+ * The outcomes are kept in a ring of the last {@link CircuitBreakerPolicy#getWindowSize()} requests.
+ * Every request takes a permit with {@link #tryAcquire()} and reports its outcome with {@link #onSuccess()} or {@link #onFailure()},
+ * or returns the permit with {@link #release()} if it was not sent after all.
+ *
+ * @see CircuitBreakerPolicy
+ */
+public class CircuitBreaker {
+
+    @Getter
+    private final String name;
+    private final CircuitBreakerPolicy policy;
+    /**
+     * Called with this breaker and its new state on every transition, can be null.
+     */
+    private final BiConsumer<CircuitBreaker, CircuitState> listener;
+
+    private final boolean[] failures;
+    private int index;
+    private int recorded;
+    private int failed;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private long openedAt;
+    private int trials;
+    private int trialSuccesses;
+
+    public CircuitBreaker(final String name, final CircuitBreakerPolicy policy, final BiConsumer<CircuitBreaker, CircuitState> listener) {
+        this.name = name;
+        this.policy = policy;
+        this.listener = listener;
+        this.failures = new boolean[policy.getWindowSize()];
+    }
+
+    /**
+     * Takes a permit to send a request.
+     *
+     * @return true if the request may be sent, false if the circuit is open or all trial requests are taken
+     */
+    public boolean tryAcquire() {
+        final CircuitState changed;
+        final boolean allowed;
+        synchronized (this) {
+            changed = checkOpenDuration();
+            allowed = state == CircuitState.CLOSED || (state == CircuitState.HALF_OPEN && trials < policy.getHalfOpenCalls());
+            if (allowed && state == CircuitState.HALF_OPEN) trials++;
+        }
+        fireTransition(changed);
+        return allowed;
+    }
+
+    /**
+     * Returns a permit of a request that was not sent.
+     */
+    public synchronized void release() {
+        if (state == CircuitState.HALF_OPEN && trials > 0) trials--;
+    }
+
+    /**
+     * Records a request that succeeded.
+     */
+    public void onSuccess() {
+        CircuitState changed = null;
+        synchronized (this) {
+            if (state == CircuitState.HALF_OPEN) {
+                if (++trialSuccesses >= policy.getHalfOpenCalls()) changed = transition(CircuitState.CLOSED);
+            } else if (state == CircuitState.CLOSED) {
+                record(false);
+            }
+        }
+        fireTransition(changed);
+    }
+
+    /**
+     * Records a request that failed.
+     */
+    public void onFailure() {
+        CircuitState changed = null;
+        synchronized (this) {
+            if (state == CircuitState.HALF_OPEN) {
+                changed = transition(CircuitState.OPEN);
+            } else if (state == CircuitState.CLOSED) {
+                record(true);
+                if (recorded >= policy.getMinimumCalls() && failed * 100 >= policy.getFailureRateThreshold() * recorded)
+                    changed = transition(CircuitState.OPEN);
+            }
+        }
+        fireTransition(changed);
+    }
+
+    /**
+     * @return the current state, an open circuit whose open duration elapsed is reported as half-open
+     */
+    public CircuitState getState() {
+        final CircuitState changed;
+        final CircuitState current;
+        synchronized (this) {
+            changed = checkOpenDuration();
+            current = state;
+        }
+        fireTransition(changed);
+        return current;
+    }
+
+    /**
+     * @return the time until an open circuit lets trial requests through, zero if it is not open
+     */
+    public synchronized Duration getRetryAfter() {
+        if (state != CircuitState.OPEN) return Duration.ZERO;
+        return Duration.ofNanos(Math.max(0, openedAt + policy.getOpenDuration().toNanos() - System.nanoTime()));
+    }
+
+    /**
+     * @return the share of failed requests in the window in percent, 0 if none were recorded
+     */
+    public synchronized int getFailureRate() {
+        return recorded == 0 ? 0 : failed * 100 / recorded;
+    }
+
+    private CircuitState checkOpenDuration() {
+        if (state == CircuitState.OPEN && System.nanoTime() - openedAt >= policy.getOpenDuration().toNanos())
+            return transition(CircuitState.HALF_OPEN);
+        return null;
+    }
+
+    private void record(final boolean failure) {
+        if (recorded == failures.length) {
+            if (failures[index]) failed--;
+        } else {
+            recorded++;
+        }
+        failures[index] = failure;
+        if (failure) failed++;
+        index = (index + 1) % failures.length;
+    }
+
+    /**
+     * Changes the state, must hold the lock.
+     *
+     * @return the new state, to be passed to {@link #fireTransition(CircuitState)} after the lock was released
+     */
+    private CircuitState transition(final CircuitState next) {
+        state = next;
+        trials = 0;
+        trialSuccesses = 0;
+        if (next == CircuitState.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (next == CircuitState.CLOSED) {
+            index = 0;
+            recorded = 0;
+            failed = 0;
+        }
+        return next;
+    }
+
+    private void fireTransition(final CircuitState changed) {
+        if (changed != null && listener != null) listener.accept(this, changed);
+    }
+
+}
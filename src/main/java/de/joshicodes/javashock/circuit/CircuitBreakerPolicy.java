@@ -0,0 +1,115 @@
+package de.joshicodes.javashock.circuit;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Configures when a {@link CircuitBreaker} opens and how it recovers. <br>
+ * A circuit opens when at least {@link #getFailureRateThreshold()} percent of the last {@link #getWindowSize()} requests failed,
+ * once {@link #getMinimumCalls()} requests were recorded. After {@link #getOpenDuration()} it lets {@link #getHalfOpenCalls()} trial requests through,
+ * it closes if all of them succeed and opens again otherwise.
+ *
+ * @see #builder()
+ */
+@Getter
+public class CircuitBreakerPolicy {
+
+    /**
+     * Opens at 50 % failures of the last 20 requests (at least 10 recorded) for 30 seconds, then tries 1 request.
+     */
+    public static final CircuitBreakerPolicy DEFAULT = builder().build();
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The share of failed requests in percent at which the circuit opens.
+     */
+    private final int failureRateThreshold;
+    /**
+     * The number of recent requests the failure rate is computed over.
+     */
+    private final int windowSize;
+    /**
+     * The number of requests that must be recorded before the circuit can open.
+     */
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+
+    private CircuitBreakerPolicy(final Builder builder) {
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.windowSize = builder.windowSize;
+        this.minimumCalls = builder.minimumCalls;
+        this.openDuration = builder.openDuration;
+        this.halfOpenCalls = builder.halfOpenCalls;
+    }
+
+    public static class Builder {
+
+        private int failureRateThreshold = 50;
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private Duration openDuration = Duration.ofSeconds(30);
+        private int halfOpenCalls = 1;
+
+        private Builder() {
+        }
+
+        /**
+         * @param failureRateThreshold the share of failed requests in percent at which the circuit opens, between 1 and 100
+         * @return this builder
+         */
+        public Builder failureRateThreshold(final int failureRateThreshold) {
+            if (failureRateThreshold < 1 || failureRateThreshold > 100)
+                throw new IllegalArgumentException("Failure rate threshold must be between 1 and 100");
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * @param windowSize   the number of recent requests the failure rate is computed over
+         * @param minimumCalls the number of requests that must be recorded before the circuit can open, at most the window size
+         * @return this builder
+         */
+        public Builder window(final int windowSize, final int minimumCalls) {
+            if (windowSize < 1)
+                throw new IllegalArgumentException("Window size must be at least 1");
+            if (minimumCalls < 1 || minimumCalls > windowSize)
+                throw new IllegalArgumentException("Minimum calls must be between 1 and the window size");
+            this.windowSize = windowSize;
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * @param openDuration how long an open circuit rejects all requests
+         * @return this builder
+         */
+        public Builder openDuration(final Duration openDuration) {
+            if (openDuration == null || openDuration.isNegative() || openDuration.isZero())
+                throw new IllegalArgumentException("Open duration must be positive");
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        /**
+         * @param halfOpenCalls the number of trial requests that must succeed to close the circuit
+         * @return this builder
+         */
+        public Builder halfOpenCalls(final int halfOpenCalls) {
+            if (halfOpenCalls < 1)
+                throw new IllegalArgumentException("Half-open calls must be at least 1");
+            this.halfOpenCalls = halfOpenCalls;
+            return this;
+        }
+
+        public CircuitBreakerPolicy build() {
+            return new CircuitBreakerPolicy(this);
+        }
+
+    }
+
+}
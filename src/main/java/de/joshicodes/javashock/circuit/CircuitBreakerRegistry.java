@@ -0,0 +1,128 @@
+package de.joshicodes.javashock.circuit;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Holds one {@link CircuitBreaker} per route and one per hub, created on first use. <br>
+ * A request takes a permit from the breaker of its route and from the breakers of all hubs it controls,
+ * so a failing hub does not open the circuit of the whole control route.
+ *
+ * @see de.joshicodes.javashock.JavaShockBuilder#circuitBreaker(CircuitBreakerPolicy)
+ */
+public class CircuitBreakerRegistry {
+
+    @Getter
+    private final CircuitBreakerPolicy policy;
+    private final BiConsumer<CircuitBreaker, CircuitState> listener;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * @param policy   the policy of all breakers
+     * @param listener called on every state transition, can be null
+     */
+    public CircuitBreakerRegistry(final CircuitBreakerPolicy policy, final BiConsumer<CircuitBreaker, CircuitState> listener) {
+        if (policy == null)
+            throw new IllegalArgumentException("Policy cannot be null");
+        this.policy = policy;
+        this.listener = listener;
+    }
+
+    /**
+     * @param route the route, e.g. {@code /2/shockers/control}
+     * @return the breaker of the route
+     */
+    public CircuitBreaker forRoute(final String route) {
+        return get("route:" + route);
+    }
+
+    /**
+     * @param hubId the id of the hub
+     * @return the breaker of the hub
+     */
+    public CircuitBreaker forHub(final String hubId) {
+        return get("hub:" + hubId);
+    }
+
+    /**
+     * @param hubId the id of the hub
+     * @return the state of the breaker of the hub, {@link CircuitState#CLOSED} if no request to it was recorded yet
+     */
+    public CircuitState getHubState(final String hubId) {
+        final CircuitBreaker breaker = breakers.get("hub:" + hubId);
+        return breaker == null ? CircuitState.CLOSED : breaker.getState();
+    }
+
+    /**
+     * Checks if commands for a hub would be rejected, so they can be left out of a request with other hubs.
+     *
+     * @param hubId the id of the hub, can be null
+     * @return the exception to fail the commands with, or null if the circuit of the hub is not open
+     */
+    public CircuitOpenException checkHub(final String hubId) {
+        if (hubId == null) return null;
+        final CircuitBreaker breaker = breakers.get("hub:" + hubId);
+        if (breaker == null || breaker.getState() != CircuitState.OPEN) return null;
+        return new CircuitOpenException(breaker.getName(), breaker.getRetryAfter());
+    }
+
+    /**
+     * Takes a permit from the breaker of the route and of every hub.
+     *
+     * @param route  the route of the request
+     * @param hubIds the hubs the request controls
+     * @return the breakers the outcome of the request must be reported to
+     * @throws CircuitOpenException if one of the circuits is open, no permit is kept then
+     */
+    public List<CircuitBreaker> acquire(final String route, final Collection<String> hubIds) {
+        final List<CircuitBreaker> acquired = new ArrayList<>(1 + hubIds.size());
+        acquire(forRoute(route), acquired);
+        for (final String hubId : hubIds) {
+            acquire(forHub(hubId), acquired);
+        }
+        return acquired;
+    }
+
+    /**
+     * Takes a permit from the breaker of every hub, for commands that are not sent over a route, e.g. over the realtime connection.
+     *
+     * @param hubIds the hubs the commands control
+     * @return the breakers the outcome of the commands must be reported to
+     * @throws CircuitOpenException if one of the circuits is open, no permit is kept then
+     */
+    public List<CircuitBreaker> acquireHubs(final Collection<String> hubIds) {
+        final List<CircuitBreaker> acquired = new ArrayList<>(hubIds.size());
+        for (final String hubId : hubIds) {
+            acquire(forHub(hubId), acquired);
+        }
+        return acquired;
+    }
+
+    /**
+     * @return all breakers created so far
+     */
+    public Collection<CircuitBreaker> getBreakers() {
+        return Collections.unmodifiableCollection(breakers.values());
+    }
+
+    private void acquire(final CircuitBreaker breaker, final List<CircuitBreaker> acquired) {
+        if (breaker.tryAcquire()) {
+            acquired.add(breaker);
+            return;
+        }
+        acquired.forEach(CircuitBreaker::release);
+        throw new CircuitOpenException(breaker.getName(), breaker.getRetryAfter());
+    }
+
+    private CircuitBreaker get(final String name) {
+        return breakers.computeIfAbsent(name, key -> new CircuitBreaker(key, policy, listener));
+    }
+
+}
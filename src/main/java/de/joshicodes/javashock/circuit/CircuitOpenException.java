@@ -0,0 +1,31 @@
+package de.joshicodes.javashock.circuit;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown instead of sending a request while its route or one of its hubs has an open {@link CircuitBreaker}. <br>
+ * The request was not sent, so it can safely be sent again later.
+ */
+@Getter
+public class CircuitOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The name of the open circuit, e.g. {@code route:/2/shockers/control} or {@code hub:<id>}.
+     */
+    private final String circuit;
+    /**
+     * The time until the circuit lets trial requests through.
+     */
+    private final Duration retryAfter;
+
+    public CircuitOpenException(final String circuit, final Duration retryAfter) {
+        super("Circuit " + circuit + " is open, retry after " + retryAfter.toMillis() + " ms");
+        this.circuit = circuit;
+        this.retryAfter = retryAfter;
+    }
+
+}
@@ -0,0 +1,21 @@
+package de.joshicodes.javashock.circuit;
+
+/**
+ * The state of a {@link CircuitBreaker}.
+ */
+public enum CircuitState {
+
+    /**
+     * Requests are sent, their outcomes are recorded.
+     */
+    CLOSED,
+    /**
+     * Too many requests failed, requests fail at once with a {@link CircuitOpenException}.
+     */
+    OPEN,
+    /**
+     * The open duration elapsed, a few trial requests decide if the circuit closes or opens again.
+     */
+    HALF_OPEN
+
+}
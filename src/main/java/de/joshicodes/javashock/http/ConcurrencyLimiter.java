@@ -0,0 +1,80 @@
+package de.joshicodes.javashock.http;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Limits the number of requests in flight without blocking the caller. <br>
+ * {@link #acquire()} returns a future that completes once a permit is free,
+ * every acquired permit has to be given back with {@link #release()}.
+ */
+public class ConcurrencyLimiter {
+
+    private static final CompletableFuture<Void> ACQUIRED = CompletableFuture.completedFuture(null);
+
+    @Getter
+    private final int maxPermits;
+    private final ArrayDeque<CompletableFuture<Void>> waiters;
+    private int available;
+
+    public ConcurrencyLimiter(final int maxPermits) {
+        if (maxPermits < 1)
+            throw new IllegalArgumentException("Max permits must be at least 1");
+        this.maxPermits = maxPermits;
+        this.available = maxPermits;
+        this.waiters = new ArrayDeque<>();
+    }
+
+    /**
+     * Acquires a permit. <br>
+     * Cancelling the returned future before it completed gives up waiting, the permit then goes to the next waiter.
+     * A permit is only to be released if the future completed normally.
+     *
+     * @return a future that completes once the permit was acquired
+     */
+    public synchronized CompletableFuture<Void> acquire() {
+        if (available > 0) {
+            available--;
+            return ACQUIRED;
+        }
+        final CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    /**
+     * Releases a permit and hands it to the next waiter, if any.
+     */
+    public void release() {
+        while (true) {
+            final CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    available++;
+                    return;
+                }
+            }
+            // a waiter that gave up does not take the permit
+            if (next.complete(null))
+                return;
+        }
+    }
+
+    /**
+     * @return the number of requests currently waiting for a permit, including ones that gave up and were not skipped yet
+     */
+    public synchronized int getWaiting() {
+        return waiters.size();
+    }
+
+    /**
+     * @return the number of free permits
+     */
+    public synchronized int getAvailable() {
+        return available;
+    }
+
+}
@@ -0,0 +1,95 @@
+package de.joshicodes.javashock.http;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A point in time by which a request must be completed, measured with {@link System#nanoTime()}. <br>
+ * It covers the whole request: waiting for the rate limit and a free slot, all attempts and the backoff between them.
+ * Requests that are not sent by then are dropped instead of being sent late.
+ *
+ * @see de.joshicodes.javashock.action.RestAction#deadline(Deadline)
+ * @see DeadlineExceededException
+ */
+public final class Deadline {
+
+    /**
+     * No deadline, the request may take as long as it needs.
+     */
+    public static final Deadline NONE = new Deadline(0, null);
+
+    private final long nanos;
+    private final Duration timeout;
+
+    private Deadline(final long nanos, final Duration timeout) {
+        this.nanos = nanos;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param timeout the time from now, or null for {@link #NONE}
+     * @return the deadline
+     */
+    public static Deadline after(final Duration timeout) {
+        if (timeout == null) return NONE;
+        if (timeout.isNegative() || timeout.isZero())
+            throw new IllegalArgumentException("Timeout must be positive");
+        return new Deadline(System.nanoTime() + timeout.toNanos(), timeout);
+    }
+
+    /**
+     * @param instant the wall clock time, can be in the past
+     * @return the deadline
+     */
+    public static Deadline at(final Instant instant) {
+        if (instant == null)
+            throw new IllegalArgumentException("Instant cannot be null");
+        final Duration timeout = Duration.between(Instant.now(), instant);
+        return new Deadline(System.nanoTime() + timeout.toNanos(), timeout);
+    }
+
+    /**
+     * @param a a deadline
+     * @param b another deadline
+     * @return the deadline that passes first
+     */
+    public static Deadline earliest(final Deadline a, final Deadline b) {
+        if (a.isNone()) return b;
+        if (b.isNone()) return a;
+        return a.nanos - b.nanos <= 0 ? a : b;
+    }
+
+    /**
+     * @return true if this is {@link #NONE}
+     */
+    public boolean isNone() {
+        return timeout == null;
+    }
+
+    /**
+     * @return the time left in nanoseconds, at most 0 once the deadline passed, {@link Long#MAX_VALUE} for {@link #NONE}
+     */
+    public long remainingNanos() {
+        return isNone() ? Long.MAX_VALUE : nanos - System.nanoTime();
+    }
+
+    /**
+     * @return true if the deadline passed
+     */
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * @return the exception to fail a request that missed this deadline with
+     */
+    public DeadlineExceededException exceeded() {
+        return new DeadlineExceededException(timeout);
+    }
+
+    @Override
+    public String toString() {
+        return isNone() ? "Deadline{none}" : "Deadline{remaining=" + Duration.ofNanos(remainingNanos()) + "}";
+    }
+
+}
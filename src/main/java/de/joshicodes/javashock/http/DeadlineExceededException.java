@@ -0,0 +1,26 @@
+package de.joshicodes.javashock.http;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request did not complete before its {@link Deadline}. <br>
+ * A request that fails with it before it was sent is never sent, so a late control command does not reach the shocker.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The time the request was given.
+     */
+    @Getter
+    private final Duration timeout;
+
+    public DeadlineExceededException(final Duration timeout) {
+        super("The request did not complete within " + timeout.toMillis() + " ms");
+        this.timeout = timeout;
+    }
+
+}
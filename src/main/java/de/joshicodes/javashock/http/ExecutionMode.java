@@ -0,0 +1,64 @@
+package de.joshicodes.javashock.http;
+
+import de.joshicodes.javashock.util.NamedThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Defines how a JavaShock instance sends its requests.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Requests are sent with {@link java.net.http.HttpClient#sendAsync}, no thread waits for a response. <br>
+     * Callbacks run on the transport threads, or on the executor set with
+     * {@link de.joshicodes.javashock.JavaShockBuilder#executor(java.util.concurrent.Executor)}.
+     */
+    ASYNC,
+
+    /**
+     * Every request is sent blocking on its own virtual thread, callbacks run on the same thread. <br>
+     * Virtual threads require Java 21, older versions fall back to {@link #PLATFORM_THREADS}.
+     */
+    VIRTUAL_THREADS,
+
+    /**
+     * Every request is sent blocking on a thread of a cached pool, callbacks run on the same thread.
+     */
+    PLATFORM_THREADS;
+
+    /**
+     * Checks if virtual threads are available in the running JVM.
+     *
+     * @return true if virtual threads are supported
+     */
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the executor used to send requests in this mode.
+     *
+     * @return the executor, or null for {@link #ASYNC}
+     */
+    public ExecutorService createExecutor() {
+        return switch (this) {
+            case ASYNC -> null;
+            case VIRTUAL_THREADS -> {
+                try {
+                    yield (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    yield PLATFORM_THREADS.createExecutor();
+                }
+            }
+            case PLATFORM_THREADS -> Executors.newCachedThreadPool(new NamedThreadFactory("JavaShock-Worker"));
+        };
+    }
+
+}
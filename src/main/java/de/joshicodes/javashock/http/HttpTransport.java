@@ -0,0 +1,191 @@
+package de.joshicodes.javashock.http;
+
+import de.joshicodes.javashock.util.NamedThreadFactory;
+import lombok.Getter;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The long-lived HTTP transport shared by all {@link de.joshicodes.javashock.action.RestAction}s of a JavaShock instance. <br>
+ * It wraps a single {@link HttpClient}, so connections (and HTTP/2 streams) are reused instead of
+ * paying a new TCP and TLS handshake for every request.
+ * <br><br>
+ * Call {@link #close()} once the transport is no longer needed to release its threads.
+ *
+ * @see #builder()
+ */
+public class HttpTransport implements AutoCloseable {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * The system property read by the JDK HttpClient to decide how long idle connections are kept open.
+     */
+    public static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    /**
+     * Creates a new transport with the default settings.
+     *
+     * @return the new transport
+     */
+    public static HttpTransport createDefault() {
+        return builder().build();
+    }
+
+    /**
+     * Creates a new builder to configure a transport.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Getter
+    private final HttpClient client;
+
+    /**
+     * The executor the HttpClient uses for its asynchronous work.
+     */
+    @Getter
+    private final Executor executor;
+    private final boolean ownsExecutor;
+
+    private volatile boolean closed;
+
+    private HttpTransport(final Builder builder) {
+        if (builder.executor == null) {
+            this.executor = Executors.newCachedThreadPool(new NamedThreadFactory("JavaShock-Http"));
+            this.ownsExecutor = true;
+        } else {
+            this.executor = builder.executor;
+            this.ownsExecutor = false;
+        }
+        if (builder.keepAlive != null && System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+            System.setProperty(KEEP_ALIVE_PROPERTY, String.valueOf(Math.max(1, builder.keepAlive.toSeconds())));
+        }
+        this.client = HttpClient.newBuilder()
+                .followRedirects(builder.redirect)
+                .version(builder.version)
+                .connectTimeout(builder.connectTimeout)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Checks if this transport was closed.
+     *
+     * @return true if {@link #close()} was called
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Releases the resources of this transport. <br>
+     * The executor is only shut down if it was created by this transport.
+     * Calling this method multiple times has no effect.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        // HttpClient implements AutoCloseable since Java 21, on older versions its selector thread ends once it is unreachable
+        if (client instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+            }
+        }
+        if (ownsExecutor && executor instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+
+    public static class Builder {
+
+        private Executor executor;
+        private Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        private HttpClient.Version version = HttpClient.Version.HTTP_2;
+        private HttpClient.Redirect redirect = HttpClient.Redirect.NORMAL;
+        private Duration keepAlive;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the executor used by the HttpClient. <br>
+         * If none is set, a cached pool of daemon threads is created and shut down on {@link HttpTransport#close()}.
+         * A custom executor is never shut down by the transport.
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(final Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets the timeout for establishing new connections.
+         *
+         * @param connectTimeout the timeout, defaults to {@link #DEFAULT_CONNECT_TIMEOUT}
+         * @return this builder
+         */
+        public Builder connectTimeout(final Duration connectTimeout) {
+            if (connectTimeout == null || connectTimeout.isNegative() || connectTimeout.isZero())
+                throw new IllegalArgumentException("Connect timeout must be positive");
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the preferred HTTP version.
+         *
+         * @param version the version, defaults to {@link HttpClient.Version#HTTP_2}
+         * @return this builder
+         */
+        public Builder version(final HttpClient.Version version) {
+            if (version == null)
+                throw new IllegalArgumentException("Version cannot be null");
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Sets the redirect policy.
+         *
+         * @param redirect the redirect policy, defaults to {@link HttpClient.Redirect#NORMAL}
+         * @return this builder
+         */
+        public Builder followRedirects(final HttpClient.Redirect redirect) {
+            if (redirect == null)
+                throw new IllegalArgumentException("Redirect cannot be null");
+            this.redirect = redirect;
+            return this;
+        }
+
+        /**
+         * Sets how long idle connections are kept open. <br>
+         * <b>The JDK only supports this JVM-wide</b> (see {@link #KEEP_ALIVE_PROPERTY}), so it is only applied
+         * if the property was not set yet and only takes effect before the first HttpClient of the JVM is created.
+         *
+         * @param keepAlive the keep-alive timeout
+         * @return this builder
+         */
+        public Builder keepAlive(final Duration keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        public HttpTransport build() {
+            return new HttpTransport(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,217 @@
+package de.joshicodes.javashock.http;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides if and when a failed request is sent again. <br>
+ * Retries wait with an exponential backoff and random jitter, and stop once the max attempts or the max elapsed time is reached.
+ * <br><br>
+ * Requests with a non-idempotent method (like control requests) are only retried if they certainly did not reach the server,
+ * i.e. the connection could not be established, so a command is never delivered twice.
+ * Idempotent requests are also retried on other I/O errors and on the retryable status codes.
+ *
+ * @see #builder()
+ */
+@Getter
+public class RetryPolicy {
+
+    /**
+     * Up to 3 retries, starting with 100 ms and doubling up to 2 seconds, for at most 10 seconds.
+     */
+    public static final RetryPolicy DEFAULT = builder().build();
+
+    /**
+     * Never retries.
+     */
+    public static final RetryPolicy NONE = builder().maxAttempts(1).build();
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The max number of attempts, including the first one.
+     */
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final double multiplier;
+    /**
+     * The share of the backoff that is randomized, between 0 and 1.
+     */
+    private final double jitter;
+    /**
+     * The max time since the first attempt after which no retry is started.
+     */
+    private final Duration maxElapsed;
+    private final Set<Integer> retryableStatusCodes;
+    private final Set<String> idempotentMethods;
+
+    private RetryPolicy(final Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.maxElapsed = builder.maxElapsed;
+        this.retryableStatusCodes = Set.copyOf(builder.retryableStatusCodes);
+        this.idempotentMethods = Set.copyOf(builder.idempotentMethods);
+    }
+
+    /**
+     * @param method the HTTP method
+     * @return true if sending the request twice has the same effect as sending it once
+     */
+    public boolean isIdempotent(final String method) {
+        return idempotentMethods.contains(method);
+    }
+
+    /**
+     * Checks if a request that failed with an exception should be retried.
+     *
+     * @param method  the HTTP method
+     * @param error   the exception
+     * @param attempt the number of the failed attempt, starting at 1
+     * @return true to retry
+     */
+    public boolean shouldRetry(final String method, final Throwable error, final int attempt) {
+        if (attempt >= maxAttempts) return false;
+        // the request was never sent, so retrying cannot deliver it twice
+        if (error instanceof ConnectException || error instanceof HttpConnectTimeoutException)
+            return true;
+        return isIdempotent(method) && error instanceof IOException;
+    }
+
+    /**
+     * Checks if a request that received the given status code should be retried.
+     *
+     * @param method     the HTTP method
+     * @param statusCode the status code of the response
+     * @param attempt    the number of the attempt, starting at 1
+     * @return true to retry
+     */
+    public boolean shouldRetry(final String method, final int statusCode, final int attempt) {
+        if (attempt >= maxAttempts) return false;
+        return isIdempotent(method) && retryableStatusCodes.contains(statusCode);
+    }
+
+    /**
+     * Computes the delay before the next attempt.
+     *
+     * @param attempt the number of the failed attempt, starting at 1
+     * @return the delay in nanoseconds
+     */
+    public long getDelayNanos(final int attempt) {
+        final double backoff = Math.min(
+                maxBackoff.toNanos(),
+                initialBackoff.toNanos() * Math.pow(multiplier, Math.max(0, attempt - 1))
+        );
+        final double randomized = backoff * (1 - jitter * ThreadLocalRandom.current().nextDouble());
+        return (long) randomized;
+    }
+
+    /**
+     * Checks if there is enough time left for another attempt.
+     *
+     * @param elapsedNanos the time since the first attempt
+     * @param delayNanos   the delay before the next attempt
+     * @return true if the next attempt would start within the max elapsed time
+     */
+    public boolean hasTimeLeft(final long elapsedNanos, final long delayNanos) {
+        return maxElapsed == null || elapsedNanos + delayNanos < maxElapsed.toNanos();
+    }
+
+    public static class Builder {
+
+        private int maxAttempts = 4;
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        private double multiplier = 2;
+        private double jitter = 0.5;
+        private Duration maxElapsed = Duration.ofSeconds(10);
+        private Set<Integer> retryableStatusCodes = Set.of(500, 502, 503, 504);
+        private Set<String> idempotentMethods = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE");
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxAttempts the max number of attempts including the first one, 1 disables retries
+         * @return this builder
+         */
+        public Builder maxAttempts(final int maxAttempts) {
+            if (maxAttempts < 1)
+                throw new IllegalArgumentException("Max attempts must be at least 1");
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param initialBackoff the delay before the first retry
+         * @param maxBackoff     the max delay between two attempts
+         * @param multiplier     the factor the delay grows with each attempt
+         * @return this builder
+         */
+        public Builder backoff(final Duration initialBackoff, final Duration maxBackoff, final double multiplier) {
+            if (initialBackoff == null || initialBackoff.isNegative() || maxBackoff == null || maxBackoff.compareTo(initialBackoff) < 0)
+                throw new IllegalArgumentException("Backoff must be positive and max backoff at least the initial backoff");
+            if (multiplier < 1)
+                throw new IllegalArgumentException("Multiplier must be at least 1");
+            this.initialBackoff = initialBackoff;
+            this.maxBackoff = maxBackoff;
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * @param jitter the share of the delay that is randomized, between 0 (none) and 1 (full jitter)
+         * @return this builder
+         */
+        public Builder jitter(final double jitter) {
+            if (jitter < 0 || jitter > 1)
+                throw new IllegalArgumentException("Jitter must be between 0 and 1");
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * @param maxElapsed the max time since the first attempt to start a retry, or null for no limit
+         * @return this builder
+         */
+        public Builder maxElapsed(final Duration maxElapsed) {
+            this.maxElapsed = maxElapsed;
+            return this;
+        }
+
+        /**
+         * @param retryableStatusCodes the status codes on which idempotent requests are retried
+         * @return this builder
+         */
+        public Builder retryableStatusCodes(final Set<Integer> retryableStatusCodes) {
+            this.retryableStatusCodes = retryableStatusCodes;
+            return this;
+        }
+
+        /**
+         * @param idempotentMethods the HTTP methods that are safe to send more than once
+         * @return this builder
+         */
+        public Builder idempotentMethods(final Set<String> idempotentMethods) {
+            this.idempotentMethods = idempotentMethods;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,114 @@
+package de.joshicodes.javashock.http;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent identical calls. <br>
+ * While a call for a key is in flight, further calls with the same key get the result of that call instead of starting a new one.
+ * Once it completed, the next call starts a new one.
+ * <br><br>
+ * Every caller gets its own future. Cancelling it does not affect the other callers,
+ * the shared call is only cancelled once all of its callers cancelled.
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, Flight<?>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Starts the call, or joins the call with the same key that is already in flight.
+     *
+     * @param key  the key identifying identical calls
+     * @param call starts the call
+     * @return a future that completes with the result of the call
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(final String key, final Supplier<CompletableFuture<T>> call) {
+        while (true) {
+            final Flight<T> created = new Flight<>(key);
+            final Flight<?> existing = inFlight.putIfAbsent(key, created);
+            if (existing == null) {
+                created.start(call);
+                return created.waiter();
+            }
+            if (existing.join()) {
+                shared.increment();
+                return ((Flight<T>) existing).waiter();
+            }
+            // all callers of that call cancelled it, start a new one
+            inFlight.remove(key, existing);
+        }
+    }
+
+    /**
+     * @return the number of calls currently in flight
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return how many calls were answered by a call that was already in flight
+     */
+    public long getShared() {
+        return shared.sum();
+    }
+
+    private final class Flight<T> {
+
+        private final String key;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        /**
+         * The callers that wait for the result, the call is cancelled when it drops to 0.
+         */
+        private final AtomicInteger waiters = new AtomicInteger(1);
+        private volatile CompletableFuture<T> future;
+
+        private Flight(final String key) {
+            this.key = key;
+        }
+
+        private void start(final Supplier<CompletableFuture<T>> call) {
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            this.future = future;
+            future.whenComplete((value, error) -> {
+                // remove first, so callers arriving after completion start a new call
+                inFlight.remove(key, this);
+                if (error == null) result.complete(value);
+                else result.completeExceptionally(error);
+            });
+        }
+
+        /**
+         * @return false if all callers already cancelled
+         */
+        private boolean join() {
+            while (true) {
+                final int current = waiters.get();
+                if (current == 0) return false;
+                if (waiters.compareAndSet(current, current + 1)) return true;
+            }
+        }
+
+        private CompletableFuture<T> waiter() {
+            final CompletableFuture<T> waiter = result.copy();
+            waiter.whenComplete((value, error) -> {
+                if (!waiter.isCancelled() || waiters.decrementAndGet() > 0) return;
+                inFlight.remove(key, this);
+                future.cancel(true);
+            });
+            return waiter;
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+package de.joshicodes.javashock.metrics;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.circuit.CircuitState;
+
+import java.time.Duration;
+
+/**
+ * Receives metrics of the requests sent by a {@link JavaShock} instance. <br>
+ * All methods have empty defaults, so implementations only override what they record.
+ * They are called on the threads that complete the requests and must return quickly.
+ * <br><br>
+ * The {@link #NOOP} listener is used when none is configured, in which case no timings are taken at all.
+ *
+ * @see de.joshicodes.javashock.JavaShockBuilder#metrics(MetricsListener)
+ */
+public interface MetricsListener {
+
+    /**
+     * Records nothing.
+     */
+    MetricsListener NOOP = new MetricsListener() {
+    };
+
+    /**
+     * Called once when the instance is created, e.g. to register gauges on its {@link JavaShock#getCacheStats()}.
+     *
+     * @param instance the instance this listener was configured on
+     */
+    default void bind(JavaShock instance) {
+    }
+
+    /**
+     * Called when a request is sent, before it waits for its rate limit.
+     *
+     * @param route  the route of the request
+     * @param method the HTTP method
+     */
+    default void onRequestStart(String route, String method) {
+    }
+
+    /**
+     * Called when a request received its final response or failed, after all retries.
+     *
+     * @param metrics the metrics of the request
+     */
+    default void onRequestEnd(RequestMetrics metrics) {
+    }
+
+    /**
+     * Called before a failed attempt is retried.
+     *
+     * @param route      the route of the request
+     * @param method     the HTTP method
+     * @param attempt    the number of the failed attempt, starting at 1
+     * @param statusCode the status code of the failed attempt, or -1 if it failed with an exception
+     * @param error      the exception of the failed attempt, or null
+     */
+    default void onRetry(String route, String method, int attempt, int statusCode, Throwable error) {
+    }
+
+    /**
+     * Called when a route is paused after a {@code 429 Too Many Requests} response.
+     *
+     * @param route      the route
+     * @param retryAfter the pause
+     */
+    default void onRateLimited(String route, Duration retryAfter) {
+    }
+
+    /**
+     * Called when coalesced control commands are sent as one request.
+     *
+     * @param size the number of commands in the request
+     */
+    default void onControlBatch(int size) {
+    }
+
+    /**
+     * Called when a circuit breaker changes its state.
+     *
+     * @param circuit the name of the circuit, e.g. {@code route:/2/shockers/control} or {@code hub:<id>}
+     * @param state   the new state
+     */
+    default void onCircuitStateChange(String circuit, CircuitState state) {
+    }
+
+}
@@ -0,0 +1,35 @@
+package de.joshicodes.javashock.metrics;
+
+/**
+ * The metrics of one request, including its retries.
+ *
+ * @param route         the route of the request, see {@link de.joshicodes.javashock.ratelimit.RequestScheduler#getRoute(String)}
+ * @param method        the HTTP method
+ * @param statusCode    the status code of the final response, or -1 if there was none, e.g. if the request failed
+ *                      with an exception or was sent over the hub connection
+ * @param attempts      the number of times the request was sent, including retries and requeues after a 429
+ * @param networkNanos  the time the last attempt took from sending until the response headers arrived
+ * @param totalNanos    the time from the start of the request until the final response, including
+ *                      waiting for rate limits and permits, retries and their backoff
+ * @param responseBytes the size of the response body as given in {@code Content-Length}, or -1 if unknown
+ * @param error         the exception the request failed with, or null
+ */
+public record RequestMetrics(
+        String route,
+        String method,
+        int statusCode,
+        int attempts,
+        long networkNanos,
+        long totalNanos,
+        long responseBytes,
+        Throwable error
+) {
+
+    /**
+     * @return true if the request received a 2xx response, or completed without one and without an error
+     */
+    public boolean isSuccess() {
+        return error == null && (statusCode == -1 || statusCode >= 200 && statusCode < 300);
+    }
+
+}
@@ -1,10 +1,17 @@
 package de.joshicodes.javashock.object;
 
 import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.action.RestAction;
+import de.joshicodes.javashock.action.control.GroupControlAction;
+import de.joshicodes.javashock.action.control.HubLaneControlDispatcher;
+import de.joshicodes.javashock.circuit.CircuitBreakerRegistry;
+import de.joshicodes.javashock.circuit.CircuitState;
 import lombok.Getter;
+import lombok.Setter;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 public class DeviceHub {
 
@@ -15,15 +22,113 @@ public class DeviceHub {
     @Getter
     private final String name;
 
+    /**
+     * The shockers of this hub. The list is thread-safe, it may be updated while the cache is refreshed.
+     */
     @Getter
     private final List<Shocker> shockers;
 
+    /**
+     * If the hub is connected to OpenShock. Only known while the instance receives device events
+     * over its {@link de.joshicodes.javashock.realtime.RealtimeConnection}, false otherwise.
+     */
+    @Getter
+    @Setter
+    private volatile boolean online;
+
+    /**
+     * The firmware version reported with the online state, null if unknown.
+     */
+    @Getter
+    @Setter
+    private volatile String firmwareVersion;
+
     public DeviceHub(final JavaShock instance, final String id, final String name) {
         this.instance = instance;
         this.id = id;
         this.name = name;
 
-        this.shockers = new ArrayList<>();
+        this.shockers = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Returns the health of this hub, the state of its circuit breaker. <br>
+     * While it is {@link CircuitState#OPEN}, commands for its shockers fail at once with a
+     * {@link de.joshicodes.javashock.circuit.CircuitOpenException}, so callers can route around it.
+     *
+     * @return the state, always {@link CircuitState#CLOSED} if circuit breakers are disabled
+     * @see de.joshicodes.javashock.JavaShockBuilder#circuitBreaker(de.joshicodes.javashock.circuit.CircuitBreakerPolicy)
+     */
+    public CircuitState getHealth() {
+        final CircuitBreakerRegistry circuits = instance.getCircuitBreakers();
+        return circuits == null ? CircuitState.CLOSED : circuits.getHubState(id);
+    }
+
+    /**
+     * Returns the control commands for this hub that are in flight or waiting,
+     * if commands are ordered per hub ({@link de.joshicodes.javashock.JavaShockBuilder#controlHubLanes(boolean)}).
+     *
+     * @return the queue depth, 0 if commands are not ordered per hub
+     */
+    public int getQueueDepth() {
+        final HubLaneControlDispatcher lanes = instance.getHubLanes();
+        return lanes == null ? 0 : lanes.getQueueDepth(id);
+    }
+
+    /**
+     * Creates a group of the shockers this hub has at the moment.
+     *
+     * @return the group
+     */
+    public ShockerGroup asGroup() {
+        return new ShockerGroup(instance, shockers);
+    }
+
+    /**
+     * Sends a shock to all shockers of this hub.
+     *
+     * @param intensity the intensity of the shock
+     * @param duration  the duration of the shock
+     * @param unit      the time unit of the duration
+     * @return the action, use {@link RestAction#queue()} or {@link RestAction#execute()} to execute the action
+     * @see ShockerGroup#shock(int, int, TimeUnit)
+     */
+    public GroupControlAction shock(final int intensity, final int duration, final TimeUnit unit) {
+        return asGroup().shock(intensity, duration, unit);
+    }
+
+    /**
+     * Sends a vibration to all shockers of this hub.
+     *
+     * @param intensity the intensity of the vibration
+     * @param duration  the duration of the vibration
+     * @param unit      the time unit of the duration
+     * @return the action, use {@link RestAction#queue()} or {@link RestAction#execute()} to execute the action
+     * @see ShockerGroup#vibrate(int, int, TimeUnit)
+     */
+    public GroupControlAction vibrate(final int intensity, final int duration, final TimeUnit unit) {
+        return asGroup().vibrate(intensity, duration, unit);
+    }
+
+    /**
+     * Sends a sound to all shockers of this hub.
+     *
+     * @param duration the duration of the sound
+     * @param unit     the time unit of the duration
+     * @return the action, use {@link RestAction#queue()} or {@link RestAction#execute()} to execute the action
+     * @see ShockerGroup#sound(int, TimeUnit)
+     */
+    public GroupControlAction sound(final int duration, final TimeUnit unit) {
+        return asGroup().sound(duration, unit);
+    }
+
+    /**
+     * Stops the current action of all shockers of this hub.
+     *
+     * @return the action, use {@link RestAction#queue()} or {@link RestAction#execute()} to execute the action
+     */
+    public GroupControlAction stop() {
+        return asGroup().stop();
     }
 
 }
@@ -1,13 +1,17 @@
 package de.joshicodes.javashock.object;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import de.joshicodes.javashock.JavaShock;
 import de.joshicodes.javashock.action.RestAction;
 import de.joshicodes.javashock.action.control.ControlData;
 import de.joshicodes.javashock.action.control.ControlRequestAction;
+import de.joshicodes.javashock.action.control.pattern.Pattern;
+import de.joshicodes.javashock.action.control.pattern.PatternHandle;
 import de.joshicodes.javashock.util.JsonUtil;
 import lombok.Getter;
 
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 public class Shocker {
@@ -25,6 +29,41 @@ public class Shocker {
         return shocker;
     }
 
+    /**
+     * Reads a shocker from the current object of the reader and caches it.
+     *
+     * @param instance the JavaShock instance
+     * @param reader   the reader, positioned at the start of the shocker object
+     * @return the shocker, or null if the object is not a valid shocker
+     * @throws IOException if the object could not be read
+     */
+    public static Shocker fromJson(final JavaShock instance, final JsonReader reader) throws IOException {
+        String id = null;
+        String name = null;
+        String model = null;
+        String hubId = null;
+        long rfId = 0;
+        boolean paused = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = JsonUtil.nextString(reader);
+                case "name" -> name = JsonUtil.nextString(reader);
+                case "rfId" -> rfId = JsonUtil.nextLong(reader);
+                case "model" -> model = JsonUtil.nextString(reader);
+                case "isPaused" -> paused = JsonUtil.nextBoolean(reader);
+                case "device" -> hubId = JsonUtil.nextString(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (id == null) return null;
+        final DeviceHub hub = instance.getHub(hubId);
+        final Shocker shocker = new Shocker(instance, id, name, rfId, model, paused, hubId);
+        instance.registerShocker(hub, shocker);
+        return shocker;
+    }
+
     private final JavaShock instance;
 
     @Getter
@@ -181,4 +220,15 @@ public class Shocker {
         return prepareControl(new ControlData(ControlData.ControlType.STOP, 0, 0));
     }
 
+    /**
+     * Starts a pattern on this Shocker. Unlike the other control methods, the pattern starts immediately.
+     *
+     * @param pattern the pattern
+     * @return the handle of the running pattern, use {@link PatternHandle#stop()} to stop it early
+     * @see JavaShock#getPatternScheduler()
+     */
+    public PatternHandle play(final Pattern pattern) {
+        return instance.getPatternScheduler().play(pattern, this);
+    }
+
 }
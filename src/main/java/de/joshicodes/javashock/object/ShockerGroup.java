@@ -0,0 +1,122 @@
+package de.joshicodes.javashock.object;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.action.RestAction;
+import de.joshicodes.javashock.action.control.ControlData;
+import de.joshicodes.javashock.action.control.GroupControlAction;
+import de.joshicodes.javashock.action.control.pattern.Pattern;
+import de.joshicodes.javashock.action.control.pattern.PatternHandle;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed set of shockers that are controlled together, for example all shockers of a hub. <br>
+ * Every command is sent to all members in as few requests as possible, see {@link GroupControlAction}.
+ *
+ * @see JavaShock#createGroup(Collection)
+ * @see DeviceHub#asGroup()
+ */
+public class ShockerGroup {
+
+    private final JavaShock instance;
+
+    /**
+     * The members of this group, without duplicates.
+     */
+    @Getter
+    private final List<Shocker> shockers;
+
+    /**
+     * @param instance the JavaShock instance
+     * @param shockers the members, duplicates are ignored
+     */
+    public ShockerGroup(final JavaShock instance, final Collection<Shocker> shockers) {
+        if (shockers == null)
+            throw new IllegalArgumentException("Shockers cannot be null");
+        this.instance = instance;
+        this.shockers = List.copyOf(new LinkedHashSet<>(shockers));
+    }
+
+    /**
+     * @return the number of members
+     */
+    public int size() {
+        return shockers.size();
+    }
+
+    /**
+     * Prepares the same control command for all members, use {@link GroupControlAction#override(Shocker, ControlData)}
+     * to change it for single members.
+     *
+     * @param data the control data
+     * @return the action, use {@link RestAction#queue()} or {@link RestAction#execute()} to execute the action
+     */
+    public GroupControlAction prepareControl(final ControlData data) {
+        if (data == null)
+            throw new IllegalArgumentException("Control data cannot be null");
+        final Map<Shocker, ControlData> commands = new LinkedHashMap<>();
+        for (final Shocker shocker : shockers) {
+            commands.put(shocker, data);
+        }
+        return new GroupControlAction(instance, commands);
+    }
+
+    /**
+     * @param intensity the intensity of the shock
+     * @param duration  the duration of the shock
+     * @param unit      the time unit of the duration
+     * @return the action, use {@link RestAction#queue()} or {@link RestAction#execute()} to execute the action
+     * @see Shocker#shock(int, int, TimeUnit)
+     */
+    public GroupControlAction shock(final int intensity, final int duration, final TimeUnit unit) {
+        return prepareControl(new ControlData(ControlData.ControlType.SHOCK, intensity, unit.toMillis(duration)));
+    }
+
+    /**
+     * @param intensity the intensity of the vibration
+     * @param duration  the duration of the vibration
+     * @param unit      the time unit of the duration
+     * @return the action, use {@link RestAction#queue()} or {@link RestAction#execute()} to execute the action
+     * @see Shocker#vibrate(int, int, TimeUnit)
+     */
+    public GroupControlAction vibrate(final int intensity, final int duration, final TimeUnit unit) {
+        return prepareControl(new ControlData(ControlData.ControlType.VIBRATE, intensity, unit.toMillis(duration)));
+    }
+
+    /**
+     * @param duration the duration of the sound
+     * @param unit     the time unit of the duration
+     * @return the action, use {@link RestAction#queue()} or {@link RestAction#execute()} to execute the action
+     * @see Shocker#sound(int, TimeUnit)
+     */
+    public GroupControlAction sound(final int duration, final TimeUnit unit) {
+        return prepareControl(new ControlData(ControlData.ControlType.SOUND, 0, unit.toMillis(duration)));
+    }
+
+    /**
+     * Stops the current action of all members.
+     *
+     * @return the action, use {@link RestAction#queue()} or {@link RestAction#execute()} to execute the action
+     */
+    public GroupControlAction stop() {
+        return prepareControl(new ControlData(ControlData.ControlType.STOP, 0, 0));
+    }
+
+    /**
+     * Starts a pattern on all members, every step is sent to all of them in one request.
+     *
+     * @param pattern the pattern
+     * @return the handle of the running pattern
+     * @see Shocker#play(Pattern)
+     */
+    public PatternHandle play(final Pattern pattern) {
+        return instance.getPatternScheduler().play(pattern, shockers);
+    }
+
+}
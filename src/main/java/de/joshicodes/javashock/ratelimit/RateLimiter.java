@@ -0,0 +1,20 @@
+package de.joshicodes.javashock.ratelimit;
+
+/**
+ * Limits the rate of requests on a route.
+ * Implementations must be thread-safe.
+ *
+ * @see TokenBucket
+ * @see RequestScheduler
+ */
+public interface RateLimiter {
+
+    /**
+     * Tries to take a permit for one request.
+     *
+     * @param nowNanos the current time as returned by {@link System#nanoTime()}
+     * @return 0 if a permit was taken, otherwise the nanoseconds until the next permit may be available
+     */
+    long tryAcquire(long nowNanos);
+
+}
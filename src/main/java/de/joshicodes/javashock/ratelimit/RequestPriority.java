@@ -0,0 +1,24 @@
+package de.joshicodes.javashock.ratelimit;
+
+/**
+ * The priority of a request waiting for its rate limit. <br>
+ * Requests with a higher priority are sent first, requests with the same priority in the order they were queued.
+ */
+public enum RequestPriority {
+
+    /**
+     * Time-critical requests, like control requests containing a {@link de.joshicodes.javashock.action.control.ControlData.ControlType#STOP}.
+     */
+    HIGH,
+
+    /**
+     * The default for all requests.
+     */
+    NORMAL,
+
+    /**
+     * Background work, like refreshing the cached shockers.
+     */
+    LOW
+
+}
@@ -0,0 +1,236 @@
+package de.joshicodes.javashock.ratelimit;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Orders outgoing requests per route by their {@link RequestPriority} and only sends them once their {@link RateLimiter} allows it. <br>
+ * A route is paused after a {@code 429 Too Many Requests} response until its {@code Retry-After} passed.
+ * Requests on routes without a limiter that are not paused are sent immediately.
+ */
+public class RequestScheduler {
+
+    /**
+     * The pause used when a 429 response has no valid {@code Retry-After} header.
+     */
+    public static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    /**
+     * Parses the {@code Retry-After} header of a response, which is either in seconds or an HTTP date.
+     *
+     * @param response the response
+     * @return the time to wait, {@link #DEFAULT_RETRY_AFTER} if the header is missing or invalid
+     */
+    public static Duration parseRetryAfter(final HttpResponse<?> response) {
+        final String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null) return DEFAULT_RETRY_AFTER;
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            final Duration duration = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+            return duration.isNegative() ? Duration.ZERO : duration;
+        } catch (DateTimeParseException ignored) {
+        }
+        return DEFAULT_RETRY_AFTER;
+    }
+
+    private final Supplier<ScheduledExecutorService> scheduler;
+    private final Map<String, RateLimiter> limiters;
+    private final RateLimiter defaultLimiter;
+    private final Map<String, Lane> lanes;
+    private final AtomicLong sequence;
+
+    /**
+     * @param scheduler      supplies the scheduler used to wake up waiting routes
+     * @param limiters       the limiters per route, see {@link #getRoute(String)}
+     * @param defaultLimiter the limiter shared by all other routes, can be null
+     */
+    public RequestScheduler(final Supplier<ScheduledExecutorService> scheduler, final Map<String, RateLimiter> limiters, final RateLimiter defaultLimiter) {
+        this.scheduler = scheduler;
+        this.limiters = Map.copyOf(limiters);
+        this.defaultLimiter = defaultLimiter;
+        this.lanes = new ConcurrentHashMap<>();
+        this.sequence = new AtomicLong();
+    }
+
+    /**
+     * Normalizes an endpoint to its route by replacing ids with {@code {id}},
+     * e.g. {@code /1/shockers/<uuid>} becomes {@code /1/shockers/{id}}.
+     *
+     * @param endpoint the endpoint
+     * @return the route
+     */
+    public static String getRoute(final String endpoint) {
+        if (endpoint == null) return null;
+        final int query = endpoint.indexOf('?');
+        final String path = query < 0 ? endpoint : endpoint.substring(0, query);
+        final String[] segments = path.split("/", -1);
+        final StringBuilder route = new StringBuilder(path.length());
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) route.append('/');
+            route.append(isId(segments[i]) ? "{id}" : segments[i]);
+        }
+        return route.toString();
+    }
+
+    private static boolean isId(final String segment) {
+        // OpenShock ids are UUIDs
+        return segment.length() == 36
+                && segment.charAt(8) == '-'
+                && segment.charAt(13) == '-'
+                && segment.charAt(18) == '-'
+                && segment.charAt(23) == '-';
+    }
+
+    /**
+     * Runs the task once the route allows it.
+     *
+     * @param route    the route of the request
+     * @param priority the priority of the request
+     * @param task     starts the request
+     * @return a future that completes with the result of the task,
+     * cancelling it before the task ran drops the request without using up the rate limit
+     */
+    public <R> CompletableFuture<R> schedule(final String route, final RequestPriority priority, final Supplier<CompletableFuture<R>> task) {
+        final RateLimiter limiter = getLimiter(route);
+        Lane lane = lanes.get(route);
+        if (limiter == null && lane == null) {
+            return task.get();
+        }
+        if (lane == null) {
+            lane = lanes.computeIfAbsent(route, r -> new Lane(limiter));
+        }
+        final Ticket<R> ticket = new Ticket<>(priority, sequence.getAndIncrement(), task, new CompletableFuture<>());
+        synchronized (lane) {
+            lane.queue.add(ticket);
+        }
+        drain(lane);
+        return ticket.future;
+    }
+
+    /**
+     * Pauses a route, requests queued for it are held back until the pause is over.
+     *
+     * @param route    the route
+     * @param duration the pause
+     */
+    public void pause(final String route, final Duration duration) {
+        final Lane lane = lanes.computeIfAbsent(route, r -> new Lane(getLimiter(r)));
+        final long until = System.nanoTime() + duration.toNanos();
+        synchronized (lane) {
+            if (until - lane.pausedUntil > 0)
+                lane.pausedUntil = until;
+        }
+    }
+
+    /**
+     * @param route the route
+     * @return the number of requests waiting on the route
+     */
+    public int getQueued(final String route) {
+        final Lane lane = lanes.get(route);
+        if (lane == null) return 0;
+        synchronized (lane) {
+            return lane.queue.size();
+        }
+    }
+
+    private RateLimiter getLimiter(final String route) {
+        final RateLimiter limiter = route == null ? null : limiters.get(route);
+        return limiter != null ? limiter : defaultLimiter;
+    }
+
+    private void drain(final Lane lane) {
+        while (true) {
+            final Ticket<?> ticket;
+            synchronized (lane) {
+                // cancelled or expired requests must not use up the rate limit
+                while (!lane.queue.isEmpty() && lane.queue.peek().future.isDone()) {
+                    lane.queue.poll();
+                }
+                if (lane.queue.isEmpty()) return;
+                final long now = System.nanoTime();
+                long wait = lane.pausedUntil - now;
+                if (wait <= 0 && lane.limiter != null)
+                    wait = lane.limiter.tryAcquire(now);
+                if (wait > 0) {
+                    if (!lane.wakeupScheduled) {
+                        lane.wakeupScheduled = true;
+                        try {
+                            scheduler.get().schedule(() -> {
+                                synchronized (lane) {
+                                    lane.wakeupScheduled = false;
+                                }
+                                drain(lane);
+                            }, wait, TimeUnit.NANOSECONDS);
+                        } catch (RuntimeException e) {
+                            // e.g. rejected after shutdown, nothing would wake the route up again
+                            lane.wakeupScheduled = false;
+                            failQueued(lane, e);
+                        }
+                    }
+                    return;
+                }
+                ticket = lane.queue.poll();
+            }
+            ticket.run();
+        }
+    }
+
+    private static void failQueued(final Lane lane, final Throwable error) {
+        Ticket<?> ticket;
+        while ((ticket = lane.queue.poll()) != null) {
+            ticket.future.completeExceptionally(error);
+        }
+    }
+
+    private static class Lane {
+
+        private final RateLimiter limiter;
+        private final PriorityQueue<Ticket<?>> queue = new PriorityQueue<>();
+        private long pausedUntil = System.nanoTime();
+        private boolean wakeupScheduled;
+
+        private Lane(final RateLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+    }
+
+    private record Ticket<R>(RequestPriority priority, long sequence, Supplier<CompletableFuture<R>> task,
+                             CompletableFuture<R> future) implements Comparable<Ticket<?>> {
+
+        private void run() {
+            if (future.isDone()) return;
+            try {
+                task.get().whenComplete((result, error) -> {
+                    if (error == null) future.complete(result);
+                    else future.completeExceptionally(error);
+                });
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public int compareTo(final Ticket<?> other) {
+            final int compare = priority.compareTo(other.priority);
+            return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+        }
+
+    }
+
+}
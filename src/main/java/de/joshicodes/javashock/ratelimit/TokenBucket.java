@@ -0,0 +1,68 @@
+package de.joshicodes.javashock.ratelimit;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * A token bucket that holds up to {@code capacity} tokens and refills {@code refillTokens} every {@code refillPeriod}. <br>
+ * Bursts up to the capacity are allowed, the sustained rate is {@code refillTokens / refillPeriod}.
+ */
+public class TokenBucket implements RateLimiter {
+
+    /**
+     * Creates a bucket that allows the given amount of requests per period, with bursts up to that amount.
+     *
+     * @param requests the requests per period
+     * @param period   the period
+     * @return the bucket
+     */
+    public static TokenBucket perPeriod(final int requests, final Duration period) {
+        return new TokenBucket(requests, requests, period);
+    }
+
+    @Getter
+    private final int capacity;
+    @Getter
+    private final int refillTokens;
+    private final long refillPeriodNanos;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(final int capacity, final int refillTokens, final Duration refillPeriod) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        if (refillTokens < 1)
+            throw new IllegalArgumentException("Refill tokens must be at least 1");
+        if (refillPeriod == null || refillPeriod.isNegative() || refillPeriod.isZero())
+            throw new IllegalArgumentException("Refill period must be positive");
+        this.capacity = capacity;
+        this.refillTokens = refillTokens;
+        this.refillPeriodNanos = refillPeriod.toNanos();
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    @Override
+    public synchronized long tryAcquire(final long nowNanos) {
+        final long elapsed = nowNanos - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + (double) elapsed * refillTokens / refillPeriodNanos);
+            lastRefill = nowNanos;
+        }
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) * refillPeriodNanos / refillTokens));
+    }
+
+    /**
+     * @return the tokens currently available, including fractions
+     */
+    public synchronized double getAvailableTokens() {
+        return tokens;
+    }
+
+}
@@ -0,0 +1,25 @@
+package de.joshicodes.javashock.realtime;
+
+/**
+ * The state of a {@link RealtimeConnection}.
+ */
+public enum ConnectionState {
+
+    /**
+     * Not connected, a reconnect may be scheduled.
+     */
+    DISCONNECTED,
+    /**
+     * The WebSocket is being opened or the SignalR handshake is in progress.
+     */
+    CONNECTING,
+    /**
+     * Connected, control commands are sent over the hub.
+     */
+    CONNECTED,
+    /**
+     * Closed for good, no reconnects are attempted.
+     */
+    CLOSED
+
+}
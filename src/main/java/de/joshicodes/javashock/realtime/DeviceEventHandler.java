@@ -0,0 +1,92 @@
+package de.joshicodes.javashock.realtime;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.object.DeviceHub;
+
+/**
+ * Keeps the cache of a {@link JavaShock} instance up to date with the device events of the user hub. <br>
+ * {@code DeviceStatus} updates the online state of the cached hubs.
+ * {@code DeviceUpdate} refreshes only the shockers of the changed hub, or removes a deleted hub.
+ * After a reconnect the whole cache is refreshed once, since events may have been missed.
+ */
+public class DeviceEventHandler {
+
+    private final JavaShock instance;
+
+    public DeviceEventHandler(final JavaShock instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * Subscribes to the device events of a connection.
+     *
+     * @param connection the connection
+     */
+    public void register(final RealtimeConnection connection) {
+        connection.on("DeviceStatus", this::onDeviceStatus);
+        connection.on("DeviceUpdate", this::onDeviceUpdate);
+        connection.onConnected(reconnected -> {
+            if (reconnected) instance.refreshCache();
+        });
+    }
+
+    /**
+     * Handles {@code DeviceStatus(states)}, where every state has the hub id in {@code device},
+     * {@code online} and {@code firmwareVersion}.
+     */
+    private void onDeviceStatus(final JsonArray arguments) {
+        if (arguments.isEmpty() || !arguments.get(0).isJsonArray()) return;
+        for (final JsonElement element : arguments.get(0).getAsJsonArray()) {
+            if (!element.isJsonObject()) continue;
+            final JsonObject state = element.getAsJsonObject();
+            final DeviceHub hub = instance.getCache().getHub(getString(state, "device"));
+            if (hub == null) continue;
+            final JsonElement online = state.get("online");
+            if (online != null && online.isJsonPrimitive()) hub.setOnline(online.getAsBoolean());
+            final String firmwareVersion = getString(state, "firmwareVersion");
+            if (firmwareVersion != null) hub.setFirmwareVersion(firmwareVersion);
+        }
+    }
+
+    /**
+     * Handles {@code DeviceUpdate(deviceId, type)}. The type is {@code Created}, {@code Updated}, {@code ShockerUpdated}
+     * or {@code Deleted}, given by name or by its ordinal.
+     */
+    private void onDeviceUpdate(final JsonArray arguments) {
+        if (arguments.size() < 2) return;
+        final String hubId = arguments.get(0).isJsonPrimitive() ? arguments.get(0).getAsString() : null;
+        if (hubId == null) return;
+        switch (getUpdateType(arguments.get(1))) {
+            case "shockerupdated" -> {
+                if (instance.getCache().getHub(hubId) != null) instance.refreshHub(hubId);
+                else instance.refreshCache();
+            }
+            case "deleted" -> instance.getCache().removeHub(hubId);
+            // a new or renamed hub, its name is only part of the full list
+            default -> instance.refreshCache();
+        }
+    }
+
+    private static String getUpdateType(final JsonElement type) {
+        if (!type.isJsonPrimitive()) return "";
+        if (type.getAsJsonPrimitive().isNumber()) {
+            return switch (type.getAsInt()) {
+                case 0 -> "created";
+                case 1 -> "updated";
+                case 2 -> "shockerupdated";
+                case 3 -> "deleted";
+                default -> "";
+            };
+        }
+        return type.getAsString().toLowerCase();
+    }
+
+    private static String getString(final JsonObject object, final String key) {
+        final JsonElement element = object.get(key);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+}
@@ -0,0 +1,499 @@
+package de.joshicodes.javashock.realtime;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.action.control.ControlData;
+import de.joshicodes.javashock.action.control.ControlPayloadWriter;
+import de.joshicodes.javashock.http.Deadline;
+import de.joshicodes.javashock.http.RetryPolicy;
+import de.joshicodes.javashock.metrics.MetricsListener;
+import de.joshicodes.javashock.metrics.RequestMetrics;
+import de.joshicodes.javashock.object.Shocker;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.WebSocket;
+import java.net.http.WebSocketHandshakeException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A persistent connection to the OpenShock user hub, which speaks the SignalR JSON protocol over a WebSocket. <br>
+ * Control commands sent over it skip the HTTP request and its headers, and are acknowledged by the hub.
+ * <br><br>
+ * The connection is opened in the background and reopened with a backoff whenever it is lost.
+ * While it is not connected, {@link #control(String, Map)} returns null and the commands are sent over HTTP instead.
+ * Commands that were already sent when the connection was lost fail and are not sent again, since they may have been delivered.
+ *
+ * @see de.joshicodes.javashock.JavaShockBuilder#realtime(boolean)
+ */
+public class RealtimeConnection implements AutoCloseable {
+
+    /**
+     * The path of the user hub, relative to the API host.
+     */
+    public static final String HUB_PATH = "/1/hubs/user";
+
+    private static final char RECORD_SEPARATOR = '\u001e';
+    private static final String HANDSHAKE = "{\"protocol\":\"json\",\"version\":1}" + RECORD_SEPARATOR;
+    private static final String PING = "{\"type\":6}" + RECORD_SEPARATOR;
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    /**
+     * The interval of the keep-alive pings, as expected by SignalR servers.
+     */
+    private static final Duration PING_INTERVAL = Duration.ofSeconds(15);
+    /**
+     * The connection is considered lost if nothing was received for this long.
+     */
+    private static final Duration SERVER_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration COMMAND_TIMEOUT = Duration.ofSeconds(10);
+    private static final RetryPolicy RECONNECT_BACKOFF = RetryPolicy.builder()
+            .backoff(Duration.ofMillis(500), Duration.ofSeconds(30), 2)
+            .jitter(0.5)
+            .build();
+
+    /**
+     * Derives the URI of the user hub from the API host, e.g. {@code https://api.openshock.app} becomes
+     * {@code wss://api.openshock.app/1/hubs/user}.
+     *
+     * @param apiHost the API host
+     * @return the URI of the hub
+     */
+    public static URI getHubUri(final String apiHost) {
+        String host = apiHost.endsWith("/") ? apiHost.substring(0, apiHost.length() - 1) : apiHost;
+        if (host.startsWith("https://")) host = "wss://" + host.substring("https://".length());
+        else if (host.startsWith("http://")) host = "ws://" + host.substring("http://".length());
+        return URI.create(host + HUB_PATH);
+    }
+
+    private final JavaShock instance;
+    @Getter
+    private final URI uri;
+
+    @Getter
+    private volatile ConnectionState state = ConnectionState.DISCONNECTED;
+    private WebSocket socket;
+    private CompletableFuture<Void> connected = new CompletableFuture<>();
+    private CompletableFuture<?> sendTail = CompletableFuture.completedFuture(null);
+    private ScheduledFuture<?> pingTask;
+    private ScheduledFuture<?> reconnectTask;
+    private int reconnectAttempt;
+    private volatile long lastReceived;
+
+    private final Map<String, PendingCommand> pending = new ConcurrentHashMap<>();
+    private final AtomicLong invocationIds = new AtomicLong();
+    private volatile long latencyNanos = -1;
+
+    private final Map<String, List<Consumer<JsonArray>>> handlers = new ConcurrentHashMap<>();
+    private final List<Consumer<Boolean>> connectListeners = new CopyOnWriteArrayList<>();
+    private boolean connectedBefore;
+
+    public RealtimeConnection(final JavaShock instance, final URI uri) {
+        if (uri == null)
+            throw new IllegalArgumentException("URI cannot be null");
+        this.instance = instance;
+        this.uri = uri;
+    }
+
+    /**
+     * Opens the connection if it is not open or opening yet.
+     *
+     * @return a future that completes once connected
+     */
+    public synchronized CompletableFuture<Void> connect() {
+        if (state == ConnectionState.CLOSED)
+            return CompletableFuture.failedFuture(new IllegalStateException("Connection was closed"));
+        if (state == ConnectionState.DISCONNECTED) {
+            if (reconnectTask != null) {
+                reconnectTask.cancel(false);
+                reconnectTask = null;
+            }
+            open();
+        }
+        return connected.copy();
+    }
+
+    /**
+     * @return true if commands are currently sent over the hub
+     */
+    public boolean isConnected() {
+        return state == ConnectionState.CONNECTED;
+    }
+
+    /**
+     * Returns the smoothed time between sending a command and its acknowledgement by the hub.
+     *
+     * @return the latency, or null if no command was acknowledged yet
+     */
+    public Duration getLatency() {
+        final long latency = latencyNanos;
+        return latency < 0 ? null : Duration.ofNanos(latency);
+    }
+
+    /**
+     * Registers a handler for a method the hub invokes on the client, e.g. {@code DeviceStatus}. <br>
+     * Handlers run on the thread that receives the message and must return quickly.
+     *
+     * @param target  the name of the method
+     * @param handler called with the arguments of every invocation
+     */
+    public void on(final String target, final Consumer<JsonArray> handler) {
+        handlers.computeIfAbsent(target, t -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * Registers a listener that is called after every successful handshake.
+     *
+     * @param listener called with true if the connection was reopened after it was lost,
+     *                 i.e. events may have been missed in between
+     */
+    public void onConnected(final Consumer<Boolean> listener) {
+        connectListeners.add(listener);
+    }
+
+    /**
+     * Sends control commands over the hub.
+     *
+     * @param customName the custom name shown in the logs, can be null
+     * @param data       the shockers and their control data
+     * @return a future that completes with true once the hub acknowledged the commands,
+     * or null if not connected, in which case nothing was sent
+     */
+    public CompletableFuture<Boolean> control(final String customName, final Map<Shocker, ControlData> data) {
+        return control(customName, data, Deadline.NONE);
+    }
+
+    /**
+     * Sends control commands over the hub that must be acknowledged before the deadline. <br>
+     * Cancelling the returned future stops waiting for the acknowledgement, the commands may still be delivered.
+     *
+     * @param customName the custom name shown in the logs, can be null
+     * @param data       the shockers and their control data
+     * @param deadline   the deadline, the acknowledgement is awaited for at most 10 seconds in any case
+     * @return a future that completes with true once the hub acknowledged the commands,
+     * or fails with a {@link de.joshicodes.javashock.http.DeadlineExceededException} if that did not happen before the deadline;
+     * null if not connected, in which case nothing was sent
+     */
+    public CompletableFuture<Boolean> control(final String customName, final Map<Shocker, ControlData> data, final Deadline deadline) {
+        final WebSocket socket;
+        synchronized (this) {
+            if (state != ConnectionState.CONNECTED) return null;
+            socket = this.socket;
+        }
+        final String invocationId = Long.toString(invocationIds.incrementAndGet());
+        final PendingCommand command = new PendingCommand(System.nanoTime(), new CompletableFuture<>());
+        pending.put(invocationId, command);
+        final MetricsListener metrics = instance.getMetrics();
+        if (metrics != MetricsListener.NOOP) {
+            metrics.onRequestStart(HUB_PATH, "ControlV2");
+            command.future().whenComplete((result, error) -> metrics.onRequestEnd(new RequestMetrics(
+                    HUB_PATH, "ControlV2", -1, 1,
+                    System.nanoTime() - command.sentAt(), System.nanoTime() - command.sentAt(), -1, error
+            )));
+        }
+        final long remaining = deadline.remainingNanos();
+        final boolean byDeadline = remaining < COMMAND_TIMEOUT.toNanos();
+        final ScheduledFuture<?> timeout = instance.getScheduler().schedule(
+                () -> fail(invocationId, byDeadline
+                        ? deadline.exceeded()
+                        : new TimeoutException("The hub did not acknowledge the command within " + COMMAND_TIMEOUT.toSeconds() + " seconds")),
+                byDeadline ? Math.max(remaining, 0) : COMMAND_TIMEOUT.toNanos(),
+                TimeUnit.NANOSECONDS
+        );
+        command.future().whenComplete((result, error) -> {
+            timeout.cancel(false);
+            // the caller gave up, a late acknowledgement is ignored
+            if (command.future().isCancelled()) pending.remove(invocationId);
+        });
+        send(socket, ControlPayloadWriter.writeHubInvocation(invocationId, customName, data))
+                .whenComplete((ws, error) -> {
+                    if (error != null) fail(invocationId, error);
+                });
+        return command.future();
+    }
+
+    /**
+     * Closes the connection for good. Commands waiting for their acknowledgement fail.
+     */
+    @Override
+    public void close() {
+        final WebSocket socket;
+        synchronized (this) {
+            if (state == ConnectionState.CLOSED) return;
+            state = ConnectionState.CLOSED;
+            socket = this.socket;
+            this.socket = null;
+            stopTasks();
+            connected.completeExceptionally(new IllegalStateException("Connection was closed"));
+        }
+        failPending(new IOException("Realtime connection was closed"));
+        if (socket != null) {
+            socket.sendClose(WebSocket.NORMAL_CLOSURE, "").whenComplete((ws, error) -> socket.abort());
+        }
+    }
+
+    private void open() {
+        state = ConnectionState.CONNECTING;
+        instance.getTransport().getClient().newWebSocketBuilder()
+                .header("OpenShockToken", instance.getToken())
+                .connectTimeout(CONNECT_TIMEOUT)
+                .buildAsync(uri, new Listener())
+                .whenComplete((socket, error) -> {
+                    if (error == null) return;
+                    // a rejected token does not get better by retrying
+                    if (unwrap(error) instanceof WebSocketHandshakeException handshake
+                            && (handshake.getResponse().statusCode() == 401 || handshake.getResponse().statusCode() == 403)) {
+                        stopped(null, new IOException("Hub rejected the token with status " + handshake.getResponse().statusCode()));
+                    } else {
+                        disconnected(null, error);
+                    }
+                });
+    }
+
+    private synchronized void opened(final WebSocket socket) {
+        if (state == ConnectionState.CLOSED) {
+            socket.abort();
+            return;
+        }
+        this.socket = socket;
+        this.lastReceived = System.nanoTime();
+        send(socket, HANDSHAKE);
+        // the server answers the handshake with an empty record, or the connection is given up
+        pingTask = instance.getScheduler().scheduleWithFixedDelay(
+                () -> keepAlive(socket),
+                PING_INTERVAL.toNanos(),
+                PING_INTERVAL.toNanos(),
+                TimeUnit.NANOSECONDS
+        );
+    }
+
+    private void keepAlive(final WebSocket socket) {
+        if (System.nanoTime() - lastReceived > SERVER_TIMEOUT.toNanos()) {
+            socket.abort();
+            disconnected(socket, new TimeoutException("Nothing received from the hub for " + SERVER_TIMEOUT.toSeconds() + " seconds"));
+            return;
+        }
+        send(socket, PING);
+    }
+
+    /**
+     * Sends a text message. The WebSocket only allows one outstanding send, so sends are chained.
+     */
+    private synchronized CompletableFuture<WebSocket> send(final WebSocket socket, final String message) {
+        final CompletableFuture<WebSocket> sent = sendTail
+                .handle((result, error) -> null)
+                .thenCompose(v -> socket.sendText(message, true));
+        sendTail = sent;
+        return sent;
+    }
+
+    private void received(final WebSocket socket, final String text) {
+        lastReceived = System.nanoTime();
+        int start = 0;
+        int end;
+        while ((end = text.indexOf(RECORD_SEPARATOR, start)) >= 0) {
+            final String record = text.substring(start, end);
+            start = end + 1;
+            try {
+                handle(socket, JsonParser.parseString(record).getAsJsonObject());
+            } catch (RuntimeException e) {
+                // ignore messages that are not valid JSON objects
+            }
+        }
+    }
+
+    private void handle(final WebSocket socket, final JsonObject message) {
+        if (state == ConnectionState.CONNECTING) {
+            handshake(socket, message);
+            return;
+        }
+        final JsonElement type = message.get("type");
+        if (type == null) return;
+        switch (type.getAsInt()) {
+            // completion of an invocation
+            case 3 -> {
+                final JsonElement id = message.get("invocationId");
+                if (id == null) return;
+                final JsonElement error = message.get("error");
+                if (error != null && !error.isJsonNull()) {
+                    fail(id.getAsString(), new RuntimeException("Control over the realtime hub failed: " + error.getAsString()));
+                } else {
+                    complete(id.getAsString());
+                }
+            }
+            // close, the server tells if a reconnect is allowed
+            case 7 -> {
+                final JsonElement error = message.get("error");
+                final JsonElement allowReconnect = message.get("allowReconnect");
+                socket.abort();
+                final IOException exception = new IOException("Hub closed the connection" + (error != null && !error.isJsonNull() ? ": " + error.getAsString() : ""));
+                if (allowReconnect != null && !allowReconnect.getAsBoolean()) stopped(socket, exception);
+                else disconnected(socket, exception);
+            }
+            // invocation of a client method, i.e. an event
+            case 1 -> {
+                final JsonElement target = message.get("target");
+                final List<Consumer<JsonArray>> list = target == null ? null : handlers.get(target.getAsString());
+                if (list == null) return;
+                final JsonElement arguments = message.get("arguments");
+                final JsonArray array = arguments != null && arguments.isJsonArray() ? arguments.getAsJsonArray() : new JsonArray();
+                list.forEach(handler -> handler.accept(array));
+            }
+            default -> {
+                // pings need no answer
+            }
+        }
+    }
+
+    private void handshake(final WebSocket socket, final JsonObject message) {
+        final JsonElement error = message.get("error");
+        if (error != null && !error.isJsonNull()) {
+            socket.abort();
+            stopped(socket, new IOException("Hub rejected the handshake: " + error.getAsString()));
+            return;
+        }
+        final CompletableFuture<Void> connected;
+        final boolean reconnected;
+        synchronized (this) {
+            if (socket != this.socket || state != ConnectionState.CONNECTING) return;
+            state = ConnectionState.CONNECTED;
+            reconnectAttempt = 0;
+            connected = this.connected;
+            reconnected = connectedBefore;
+            connectedBefore = true;
+        }
+        connected.complete(null);
+        connectListeners.forEach(listener -> listener.accept(reconnected));
+    }
+
+    private void complete(final String invocationId) {
+        final PendingCommand command = pending.remove(invocationId);
+        if (command == null) return;
+        final long latency = System.nanoTime() - command.sentAt();
+        final long previous = latencyNanos;
+        latencyNanos = previous < 0 ? latency : previous - previous / 8 + latency / 8;
+        command.future().complete(true);
+    }
+
+    private void fail(final String invocationId, final Throwable error) {
+        final PendingCommand command = pending.remove(invocationId);
+        if (command != null) command.future().completeExceptionally(error);
+    }
+
+    private void failPending(final Throwable error) {
+        pending.keySet().forEach(invocationId -> fail(invocationId, error));
+    }
+
+    /**
+     * Handles a lost connection and schedules a reconnect.
+     *
+     * @param socket the socket that was lost, or null if it could not be opened
+     */
+    private void disconnected(final WebSocket socket, final Throwable error) {
+        synchronized (this) {
+            if (socket != this.socket || state == ConnectionState.CLOSED) return;
+            this.socket = null;
+            stopTasks();
+            state = ConnectionState.DISCONNECTED;
+            if (connected.isDone()) connected = new CompletableFuture<>();
+            final long delay = RECONNECT_BACKOFF.getDelayNanos(++reconnectAttempt);
+            reconnectTask = instance.getScheduler().schedule(this::reconnect, delay, TimeUnit.NANOSECONDS);
+        }
+        failPending(error instanceof IOException ? error : new IOException("Realtime connection was lost", error));
+    }
+
+    /**
+     * Handles a connection the server does not want to be reopened, e.g. because the token was rejected.
+     */
+    private void stopped(final WebSocket socket, final IOException error) {
+        final CompletableFuture<Void> connected;
+        synchronized (this) {
+            if (socket != this.socket || state == ConnectionState.CLOSED) return;
+            this.socket = null;
+            stopTasks();
+            state = ConnectionState.DISCONNECTED;
+            connected = this.connected;
+            this.connected = new CompletableFuture<>();
+        }
+        connected.completeExceptionally(error);
+        failPending(error);
+    }
+
+    private synchronized void reconnect() {
+        reconnectTask = null;
+        if (state == ConnectionState.DISCONNECTED) open();
+    }
+
+    private void stopTasks() {
+        if (pingTask != null) {
+            pingTask.cancel(false);
+            pingTask = null;
+        }
+        if (reconnectTask != null) {
+            reconnectTask.cancel(false);
+            reconnectTask = null;
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    private record PendingCommand(long sentAt, CompletableFuture<Boolean> future) {
+    }
+
+    private final class Listener implements WebSocket.Listener {
+
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        public void onOpen(final WebSocket webSocket) {
+            opened(webSocket);
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(final WebSocket webSocket, final CharSequence data, final boolean last) {
+            text.append(data);
+            if (last) {
+                final String message = text.toString();
+                text.setLength(0);
+                received(webSocket, message);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(final WebSocket webSocket, final int statusCode, final String reason) {
+            disconnected(webSocket, new IOException("Hub closed the connection with status " + statusCode + (reason.isEmpty() ? "" : ": " + reason)));
+            return null;
+        }
+
+        @Override
+        public void onError(final WebSocket webSocket, final Throwable error) {
+            disconnected(webSocket, error);
+        }
+
+    }
+
+}
@@ -1,6 +1,11 @@
 package de.joshicodes.javashock.util;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.EOFException;
+import java.io.IOException;
 
 public class JsonUtil {
 
@@ -28,4 +33,57 @@ public class JsonUtil {
         return getBoolean(shockerObject, key, false);
     }
 
+    /**
+     * Begins the next object, if the next value is one.
+     *
+     * @param reader the reader
+     * @return false if the input is empty or the next value is not an object, it is not consumed then
+     */
+    public static boolean beginObject(final JsonReader reader) throws IOException {
+        try {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT)
+                return false;
+        } catch (EOFException e) {
+            return false;
+        }
+        reader.beginObject();
+        return true;
+    }
+
+    public static String nextString(final JsonReader reader, final String def) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return def;
+        }
+        return reader.nextString();
+    }
+
+    public static String nextString(final JsonReader reader) throws IOException {
+        return nextString(reader, null);
+    }
+
+    public static long nextLong(final JsonReader reader, final long def) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return def;
+        }
+        return reader.nextLong();
+    }
+
+    public static long nextLong(final JsonReader reader) throws IOException {
+        return nextLong(reader, 0);
+    }
+
+    public static boolean nextBoolean(final JsonReader reader, final boolean def) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return def;
+        }
+        return reader.nextBoolean();
+    }
+
+    public static boolean nextBoolean(final JsonReader reader) throws IOException {
+        return nextBoolean(reader, false);
+    }
+
 }
@@ -0,0 +1,119 @@
+package de.joshicodes.javashock.action;
+
+import com.sun.net.httpserver.HttpServer;
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.StartupMode;
+import de.joshicodes.javashock.http.DeadlineExceededException;
+import de.joshicodes.javashock.http.ExecutionMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A server that sends the headers and the start of the body of {@code /1/shockers/own}, then stalls.
+ */
+class StreamingRestActionTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private ExecutorService executor;
+    private JavaShock shock;
+
+    @BeforeEach
+    void start() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/1/shockers/own", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().write("{\"message\":\"\",\"data\":[{\"id\":\"hub".getBytes(StandardCharsets.UTF_8));
+            exchange.getResponseBody().flush();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            exchange.close();
+        });
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        if (shock != null) shock.shutdown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private JavaShock connect(final ExecutionMode mode) {
+        shock = JavaShock.builder("token")
+                .apiHost("http://127.0.0.1:" + server.getAddress().getPort())
+                .executionMode(mode)
+                .startupMode(StartupMode.NONE)
+                .build();
+        // the first request also starts the client, which must not count towards the deadlines below
+        shock.retrieveShocker("unknown").execute();
+        return shock;
+    }
+
+    private static long readingThreads() {
+        return Thread.getAllStackTraces().values().stream()
+                .filter(stack -> Arrays.stream(stack).anyMatch(element -> element.getClassName().equals("com.google.gson.stream.JsonReader")))
+                .count();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ExecutionMode.class, names = {"ASYNC", "PLATFORM_THREADS"})
+    void deadlineAppliesWhileTheBodyIsRead(final ExecutionMode mode) throws InterruptedException {
+        final JavaShock shock = connect(mode);
+
+        final long start = System.nanoTime();
+        final CompletableFuture<?> request = shock.retrieveAllShockers().timeout(Duration.ofMillis(500)).submit();
+
+        final ExecutionException error = assertThrows(ExecutionException.class, () -> request.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, error.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        // the stalled body was closed, so the reader gave up as well
+        Thread.sleep(200);
+        assertEquals(0, readingThreads());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ExecutionMode.class, names = {"ASYNC", "PLATFORM_THREADS"})
+    void cancellingClosesTheBody(final ExecutionMode mode) throws InterruptedException {
+        final JavaShock shock = connect(mode);
+
+        final CompletableFuture<?> request = shock.retrieveAllShockers().timeout(Duration.ofSeconds(10)).submit();
+        Thread.sleep(200);
+        assertTrue(request.cancel(true));
+
+        assertThrows(CancellationException.class, request::join);
+        Thread.sleep(200);
+        assertEquals(0, readingThreads());
+    }
+
+}
@@ -0,0 +1,179 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.http.Deadline;
+import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.ratelimit.RequestPriority;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static de.joshicodes.javashock.action.control.RecordingControlDispatcher.shocker;
+import static de.joshicodes.javashock.action.control.RecordingControlDispatcher.stop;
+import static de.joshicodes.javashock.action.control.RecordingControlDispatcher.vibrate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConflatingControlDispatcherTest {
+
+    @Test
+    void passesOnAtOnceWhileIdle() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final ConflatingControlDispatcher dispatcher = new ConflatingControlDispatcher(delegate);
+
+        final CompletableFuture<Boolean> future = dispatcher.dispatch(shocker("a", "hub"), vibrate(10));
+
+        assertEquals(1, delegate.getDispatched().size());
+        assertEquals(0, dispatcher.getPendingCount());
+        delegate.get(0).future().complete(true);
+        assertTrue(future.join());
+    }
+
+    @Test
+    void supersededCommandCompletesWithFalse() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final ConflatingControlDispatcher dispatcher = new ConflatingControlDispatcher(delegate);
+        final Shocker shocker = shocker("a", "hub");
+
+        dispatcher.dispatch(shocker, vibrate(10));
+        final CompletableFuture<Boolean> superseded = dispatcher.dispatch(shocker, vibrate(20));
+        final CompletableFuture<Boolean> latest = dispatcher.dispatch(shocker, vibrate(30));
+
+        assertFalse(superseded.join());
+        assertEquals(1, dispatcher.getPendingCount());
+        assertEquals(1, delegate.getDispatched().size());
+
+        delegate.get(0).future().complete(true);
+        assertEquals(2, delegate.getDispatched().size());
+        assertEquals(30, delegate.get(1).data().intensity());
+        assertEquals(0, dispatcher.getPendingCount());
+        assertFalse(latest.isDone());
+
+        delegate.get(1).future().complete(true);
+        assertTrue(latest.join());
+    }
+
+    @Test
+    void stopPurgesPendingAndWaitsForTheCommandInFlight() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final ConflatingControlDispatcher dispatcher = new ConflatingControlDispatcher(delegate);
+        final Shocker shocker = shocker("a", "hub");
+
+        dispatcher.dispatch(shocker, vibrate(10));
+        final CompletableFuture<Boolean> pending = dispatcher.dispatch(shocker, vibrate(20));
+        final CompletableFuture<Boolean> stop = dispatcher.dispatch(shocker, stop());
+
+        assertFalse(pending.join());
+        assertEquals(1, dispatcher.getPendingCount());
+        // the stop must not overtake the command in flight
+        assertEquals(1, delegate.getDispatched().size());
+
+        delegate.get(0).future().complete(true);
+        assertEquals(2, delegate.getDispatched().size());
+        assertEquals(ControlData.ControlType.STOP, delegate.get(1).data().type());
+        delegate.get(1).future().complete(true);
+        assertTrue(stop.join());
+        // the purged command is never sent
+        assertEquals(2, delegate.getDispatched().size());
+    }
+
+    @Test
+    void stopIsPassedOnAtOnceWhileIdle() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final ConflatingControlDispatcher dispatcher = new ConflatingControlDispatcher(delegate);
+
+        dispatcher.dispatch(shocker("a", "hub"), stop());
+
+        assertEquals(1, delegate.getDispatched().size());
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    void commandAfterStopIsNotSentBeforeIt() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final ConflatingControlDispatcher dispatcher = new ConflatingControlDispatcher(delegate);
+        final Shocker shocker = shocker("a", "hub");
+
+        dispatcher.dispatch(shocker, vibrate(10));
+        final CompletableFuture<Boolean> stop = dispatcher.dispatch(shocker, stop());
+        final CompletableFuture<Boolean> next = dispatcher.dispatch(shocker, vibrate(40));
+
+        // the command after the stop does not replace it
+        assertFalse(stop.isDone());
+        assertEquals(2, dispatcher.getPendingCount());
+
+        delegate.get(0).future().complete(true);
+        assertEquals(2, delegate.getDispatched().size());
+        assertEquals(ControlData.ControlType.STOP, delegate.get(1).data().type());
+        delegate.get(1).future().complete(true);
+        assertEquals(3, delegate.getDispatched().size());
+        assertEquals(40, delegate.get(2).data().intensity());
+
+        delegate.get(2).future().complete(true);
+        assertTrue(stop.join());
+        assertTrue(next.join());
+    }
+
+    @Test
+    void cancellingAWaitingCommandDropsIt() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final ConflatingControlDispatcher dispatcher = new ConflatingControlDispatcher(delegate);
+        final Shocker shocker = shocker("a", "hub");
+
+        dispatcher.dispatch(shocker, vibrate(10));
+        final CompletableFuture<Boolean> cancelled = dispatcher.dispatch(shocker, vibrate(20));
+        assertTrue(cancelled.cancel(true));
+        assertEquals(0, dispatcher.getPendingCount());
+
+        delegate.get(0).future().complete(true);
+        assertEquals(1, delegate.getDispatched().size());
+    }
+
+    @Test
+    void cancellingASentCommandCancelsItsRequest() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final ConflatingControlDispatcher dispatcher = new ConflatingControlDispatcher(delegate);
+        final Shocker shocker = shocker("a", "hub");
+        final ControlOptions options = new ControlOptions(Deadline.after(Duration.ofSeconds(5)), RequestPriority.HIGH, null);
+
+        dispatcher.dispatch(shocker, vibrate(10));
+        final CompletableFuture<Boolean> next = dispatcher.dispatch(shocker, vibrate(20), options);
+        delegate.get(0).future().complete(true);
+
+        // the command keeps the settings it was issued with
+        assertSame(options, delegate.get(1).options());
+        assertTrue(next.cancel(true));
+        assertTrue(delegate.get(1).future().isCancelled());
+    }
+
+    @Test
+    void shockersDoNotConflateWithEachOther() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final ConflatingControlDispatcher dispatcher = new ConflatingControlDispatcher(delegate);
+
+        dispatcher.dispatch(shocker("a", "hub"), vibrate(10));
+        dispatcher.dispatch(shocker("b", "hub"), vibrate(20));
+
+        assertEquals(2, delegate.getDispatched().size());
+        assertEquals(0, dispatcher.getPendingCount());
+    }
+
+    @Test
+    void closeFailsPendingCommands() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final ConflatingControlDispatcher dispatcher = new ConflatingControlDispatcher(delegate);
+        final Shocker shocker = shocker("a", "hub");
+
+        dispatcher.dispatch(shocker, vibrate(10));
+        final CompletableFuture<Boolean> pending = dispatcher.dispatch(shocker, vibrate(20));
+        dispatcher.close();
+
+        assertTrue(pending.isCompletedExceptionally());
+        assertTrue(dispatcher.dispatch(shocker, vibrate(30)).isCompletedExceptionally());
+        assertThrows(IllegalArgumentException.class, () -> new ConflatingControlDispatcher(null));
+    }
+
+}
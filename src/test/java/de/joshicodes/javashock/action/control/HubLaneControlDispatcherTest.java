@@ -0,0 +1,151 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.object.Shocker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static de.joshicodes.javashock.action.control.RecordingControlDispatcher.shocker;
+import static de.joshicodes.javashock.action.control.RecordingControlDispatcher.vibrate;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HubLaneControlDispatcherTest {
+
+    @Test
+    void passesOnCommandsOfOneHubInOrder() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final HubLaneControlDispatcher dispatcher = new HubLaneControlDispatcher(delegate, null);
+        final Shocker first = shocker("a", "hub");
+        final Shocker second = shocker("b", "hub");
+
+        final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            futures.add(dispatcher.dispatch(i % 2 == 0 ? second : first, vibrate(i)));
+        }
+
+        // one command of the hub in flight at a time
+        assertEquals(1, delegate.getDispatched().size());
+        assertEquals(3, dispatcher.getQueueDepth("hub"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, delegate.get(i).data().intensity());
+            delegate.get(i).future().complete(true);
+            assertTrue(futures.get(i).join());
+        }
+        assertEquals(3, delegate.getDispatched().size());
+        assertEquals(0, dispatcher.getQueueDepth("hub"));
+        assertTrue(dispatcher.getQueueDepths().isEmpty());
+    }
+
+    @Test
+    void hubsAreIndependent() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final HubLaneControlDispatcher dispatcher = new HubLaneControlDispatcher(delegate, null);
+
+        dispatcher.dispatch(shocker("a", "hub-1"), vibrate(10));
+        dispatcher.dispatch(shocker("b", "hub-1"), vibrate(20));
+        dispatcher.dispatch(shocker("c", "hub-2"), vibrate(30));
+
+        assertEquals(2, delegate.getDispatched().size());
+        assertEquals(2, dispatcher.getQueueDepth("hub-1"));
+        assertEquals(1, dispatcher.getQueueDepth("hub-2"));
+
+        delegate.get(1).future().complete(true);
+        assertEquals(0, dispatcher.getQueueDepth("hub-2"));
+        assertEquals(2, dispatcher.getQueueDepth("hub-1"));
+    }
+
+    @Test
+    void commandsCompletingAtOnceDrainTheLane() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher(true);
+        final HubLaneControlDispatcher dispatcher = new HubLaneControlDispatcher(delegate, null);
+        final Shocker shocker = shocker("a", "hub");
+
+        // deep enough to overflow the stack if completed commands recursed into the next one
+        final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            futures.add(dispatcher.dispatch(shocker, vibrate(i % 100)));
+        }
+
+        assertEquals(10_000, delegate.getDispatched().size());
+        assertEquals(0, dispatcher.getQueueDepth("hub"));
+        futures.forEach(future -> assertTrue(future.join()));
+    }
+
+    @Test
+    void queuedBehindInFlightCommandsDrainInOneLoop() {
+        final RecordingControlDispatcher blocking = new RecordingControlDispatcher();
+        final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        // the first command stays in flight, all later ones complete as soon as they are passed on
+        final HubLaneControlDispatcher dispatcher = new HubLaneControlDispatcher(new ControlDispatcher() {
+            @Override
+            public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data) {
+                if (blocking.getDispatched().isEmpty())
+                    return blocking.dispatch(shocker, data);
+                return CompletableFuture.completedFuture(true);
+            }
+        }, null);
+        final Shocker shocker = shocker("a", "hub");
+
+        for (int i = 0; i < 1_000; i++) {
+            futures.add(dispatcher.dispatch(shocker, vibrate(10)));
+        }
+        assertEquals(1_000, dispatcher.getQueueDepth("hub"));
+
+        blocking.get(0).future().complete(true);
+        assertEquals(0, dispatcher.getQueueDepth("hub"));
+        futures.forEach(future -> assertTrue(future.join()));
+    }
+
+    @Test
+    void cancelledCommandsAreSkippedOrCancelTheirRequest() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final HubLaneControlDispatcher dispatcher = new HubLaneControlDispatcher(delegate, null);
+        final Shocker shocker = shocker("a", "hub");
+
+        dispatcher.dispatch(shocker, vibrate(10));
+        final CompletableFuture<Boolean> skipped = dispatcher.dispatch(shocker, vibrate(20));
+        final CompletableFuture<Boolean> sent = dispatcher.dispatch(shocker, vibrate(30));
+        assertTrue(skipped.cancel(true));
+
+        delegate.get(0).future().complete(true);
+        assertEquals(2, delegate.getDispatched().size());
+        assertEquals(30, delegate.get(1).data().intensity());
+
+        assertTrue(sent.cancel(true));
+        assertTrue(delegate.get(1).future().isCancelled());
+        assertEquals(0, dispatcher.getQueueDepth("hub"));
+    }
+
+    @Test
+    void shockersWithoutHubShareALane() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final HubLaneControlDispatcher dispatcher = new HubLaneControlDispatcher(delegate, null);
+
+        dispatcher.dispatch(shocker("a", null), vibrate(10));
+        dispatcher.dispatch(shocker("b", null), vibrate(20));
+
+        assertEquals(1, delegate.getDispatched().size());
+        assertEquals(2, dispatcher.getQueueDepth(null));
+    }
+
+    @Test
+    void failedCommandsDoNotStallTheLane() {
+        final RecordingControlDispatcher delegate = new RecordingControlDispatcher();
+        final HubLaneControlDispatcher dispatcher = new HubLaneControlDispatcher(delegate, null);
+        final Shocker shocker = shocker("a", "hub");
+
+        final CompletableFuture<Boolean> failed = dispatcher.dispatch(shocker, vibrate(10));
+        final CompletableFuture<Boolean> next = dispatcher.dispatch(shocker, vibrate(20));
+        delegate.get(0).future().completeExceptionally(new IllegalStateException("failed"));
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(2, delegate.getDispatched().size());
+        delegate.get(1).future().complete(true);
+        assertTrue(next.join());
+        assertEquals(0, dispatcher.getQueueDepth("hub"));
+    }
+
+}
@@ -0,0 +1,61 @@
+package de.joshicodes.javashock.action.control;
+
+import de.joshicodes.javashock.object.Shocker;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the commands passed on to it. Their futures stay incomplete until the test completes them,
+ * unless the dispatcher was created to complete them at once.
+ */
+class RecordingControlDispatcher implements ControlDispatcher {
+
+    private final boolean completeAtOnce;
+    private final List<Dispatched> dispatched = new CopyOnWriteArrayList<>();
+
+    RecordingControlDispatcher() {
+        this(false);
+    }
+
+    RecordingControlDispatcher(final boolean completeAtOnce) {
+        this.completeAtOnce = completeAtOnce;
+    }
+
+    static Shocker shocker(final String id, final String hubId) {
+        return new Shocker(null, id, id, 0, "CaiXianlin", false, hubId);
+    }
+
+    static ControlData vibrate(final int intensity) {
+        return new ControlData(ControlData.ControlType.VIBRATE, intensity, 1000);
+    }
+
+    static ControlData stop() {
+        return new ControlData(ControlData.ControlType.STOP, 0, 0);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data) {
+        return dispatch(shocker, data, ControlOptions.DEFAULT);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> dispatch(final Shocker shocker, final ControlData data, final ControlOptions options) {
+        final CompletableFuture<Boolean> future = completeAtOnce ? CompletableFuture.completedFuture(true) : new CompletableFuture<>();
+        dispatched.add(new Dispatched(shocker, data, options, future));
+        return future;
+    }
+
+    List<Dispatched> getDispatched() {
+        return dispatched;
+    }
+
+    Dispatched get(final int index) {
+        return dispatched.get(index);
+    }
+
+    record Dispatched(Shocker shocker, ControlData data, ControlOptions options, CompletableFuture<Boolean> future) {
+    }
+
+}
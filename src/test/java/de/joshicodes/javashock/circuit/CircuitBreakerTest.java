@@ -0,0 +1,146 @@
+package de.joshicodes.javashock.circuit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(100);
+
+    private static CircuitBreakerPolicy policy(final int halfOpenCalls) {
+        return CircuitBreakerPolicy.builder()
+                .failureRateThreshold(50)
+                .window(4, 4)
+                .openDuration(OPEN_DURATION)
+                .halfOpenCalls(halfOpenCalls)
+                .build();
+    }
+
+    private static void fail(final CircuitBreaker breaker, final int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+
+    private static void waitOpenDuration() throws InterruptedException {
+        Thread.sleep(OPEN_DURATION.toMillis() + 20);
+    }
+
+    @Test
+    void opensOnceTheFailureRateIsReached() {
+        final CircuitBreaker breaker = new CircuitBreaker("test", policy(1), null);
+
+        // below the minimum number of calls the circuit stays closed
+        fail(breaker, 3);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(100, breaker.getFailureRate());
+
+        fail(breaker, 1);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.getRetryAfter().compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void staysClosedBelowTheThreshold() {
+        final CircuitBreaker breaker = new CircuitBreaker("test", policy(1), null);
+
+        fail(breaker, 1);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess();
+        }
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(25, breaker.getFailureRate());
+    }
+
+    @Test
+    void openHalfOpenClosed() throws InterruptedException {
+        final List<CircuitState> transitions = new CopyOnWriteArrayList<>();
+        final CircuitBreaker breaker = new CircuitBreaker("test", policy(2), (b, state) -> transitions.add(state));
+
+        fail(breaker, 4);
+        waitOpenDuration();
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+
+        // only as many trial requests as must succeed
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        breaker.onSuccess();
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate());
+        assertEquals(List.of(CircuitState.OPEN, CircuitState.HALF_OPEN, CircuitState.CLOSED), transitions);
+    }
+
+    @Test
+    void failedTrialOpensAgain() throws InterruptedException {
+        final CircuitBreaker breaker = new CircuitBreaker("test", policy(1), null);
+
+        fail(breaker, 4);
+        waitOpenDuration();
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void releasedTrialPermitCanBeTakenAgain() throws InterruptedException {
+        final CircuitBreaker breaker = new CircuitBreaker("test", policy(1), null);
+
+        fail(breaker, 4);
+        waitOpenDuration();
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.release();
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void registryRejectsOpenHubs() {
+        final CircuitBreakerRegistry registry = new CircuitBreakerRegistry(policy(1), null);
+
+        assertNull(registry.checkHub("hub"));
+        assertEquals(CircuitState.CLOSED, registry.getHubState("hub"));
+        fail(registry.forHub("hub"), 4);
+
+        final CircuitOpenException open = registry.checkHub("hub");
+        assertNotNull(open);
+        assertEquals("hub:hub", open.getCircuit());
+        assertEquals(CircuitState.OPEN, registry.getHubState("hub"));
+        assertThrows(CircuitOpenException.class, () -> registry.acquireHubs(List.of("other", "hub")));
+        assertThrows(CircuitOpenException.class, () -> registry.acquire("/2/shockers/control", List.of("hub")));
+        assertEquals(1, registry.acquireHubs(List.of("other")).size());
+    }
+
+    @Test
+    void registryReturnsPermitsWhenOneCircuitIsOpen() throws InterruptedException {
+        final CircuitBreakerRegistry registry = new CircuitBreakerRegistry(policy(1), null);
+
+        fail(registry.forHub("a"), 4);
+        fail(registry.forHub("b"), 4);
+        waitOpenDuration();
+        // the only trial permit of b is taken, so acquiring both takes the one of a and fails at b
+        assertTrue(registry.forHub("b").tryAcquire());
+        assertThrows(CircuitOpenException.class, () -> registry.acquireHubs(List.of("a", "b")));
+        // the permit of a was returned
+        assertEquals(1, registry.acquireHubs(List.of("a")).size());
+    }
+
+}
@@ -0,0 +1,56 @@
+package de.joshicodes.javashock.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void waitsForAFreePermit() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+
+        assertTrue(limiter.acquire().isDone());
+        final CompletableFuture<Void> waiter = limiter.acquire();
+        assertFalse(waiter.isDone());
+        assertEquals(1, limiter.getWaiting());
+
+        limiter.release();
+        assertTrue(waiter.isDone());
+        assertEquals(0, limiter.getAvailable());
+
+        limiter.release();
+        assertEquals(1, limiter.getAvailable());
+    }
+
+    @Test
+    void cancelledWaiterPassesThePermitOn() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+
+        limiter.acquire();
+        final CompletableFuture<Void> cancelled = limiter.acquire();
+        final CompletableFuture<Void> next = limiter.acquire();
+        cancelled.cancel(false);
+
+        limiter.release();
+        assertTrue(next.isDone());
+        assertFalse(next.isCompletedExceptionally());
+        assertEquals(0, limiter.getAvailable());
+        assertEquals(0, limiter.getWaiting());
+
+        // the cancelled waiter never held a permit, so only the one of next is released
+        limiter.release();
+        assertEquals(1, limiter.getAvailable());
+    }
+
+    @Test
+    void rejectsInvalidPermits() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimiter(0));
+    }
+
+}
@@ -0,0 +1,116 @@
+package de.joshicodes.javashock.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void identicalCallsShareOneCall() {
+        final SingleFlight singleFlight = new SingleFlight();
+        final AtomicInteger calls = new AtomicInteger();
+        final CompletableFuture<String> call = new CompletableFuture<>();
+
+        final CompletableFuture<String> first = singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return call;
+        });
+        final CompletableFuture<String> second = singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getInFlight());
+        assertEquals(1, singleFlight.getShared());
+        assertNotSame(first, second);
+
+        call.complete("result");
+        assertEquals("result", first.join());
+        assertEquals("result", second.join());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    void cancellingOneCallerKeepsTheCallForTheOthers() {
+        final SingleFlight singleFlight = new SingleFlight();
+        final CompletableFuture<String> call = new CompletableFuture<>();
+
+        final CompletableFuture<String> first = singleFlight.execute("key", () -> call);
+        final CompletableFuture<String> second = singleFlight.execute("key", CompletableFuture::new);
+        final CompletableFuture<String> third = singleFlight.execute("key", CompletableFuture::new);
+
+        assertTrue(first.cancel(true));
+        assertFalse(call.isCancelled());
+        assertEquals(1, singleFlight.getInFlight());
+
+        call.complete("result");
+        assertThrows(CancellationException.class, first::join);
+        assertEquals("result", second.join());
+        assertEquals("result", third.join());
+    }
+
+    @Test
+    void cancellingAllCallersCancelsTheCall() {
+        final SingleFlight singleFlight = new SingleFlight();
+        final CompletableFuture<String> call = new CompletableFuture<>();
+
+        final CompletableFuture<String> first = singleFlight.execute("key", () -> call);
+        final CompletableFuture<String> second = singleFlight.execute("key", CompletableFuture::new);
+
+        first.cancel(true);
+        assertFalse(call.isCancelled());
+        second.cancel(true);
+        assertTrue(call.isCancelled());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    void callAfterAllCallersCancelledStartsANewOne() {
+        final SingleFlight singleFlight = new SingleFlight();
+        final CompletableFuture<String> cancelled = new CompletableFuture<>();
+        final CompletableFuture<String> next = new CompletableFuture<>();
+
+        singleFlight.execute("key", () -> cancelled).cancel(true);
+        final CompletableFuture<String> caller = singleFlight.execute("key", () -> next);
+
+        next.complete("next");
+        assertEquals("next", caller.join());
+        assertEquals(0, singleFlight.getShared());
+    }
+
+    @Test
+    void failureIsSharedAndNotCached() {
+        final SingleFlight singleFlight = new SingleFlight();
+        final CompletableFuture<String> call = new CompletableFuture<>();
+
+        final CompletableFuture<String> first = singleFlight.execute("key", () -> call);
+        final CompletableFuture<String> second = singleFlight.execute("key", CompletableFuture::new);
+        call.completeExceptionally(new IllegalStateException("failed"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals("again", singleFlight.execute("key", () -> CompletableFuture.completedFuture("again")).join());
+    }
+
+    @Test
+    void differentKeysDoNotShare() {
+        final SingleFlight singleFlight = new SingleFlight();
+
+        singleFlight.execute("a", CompletableFuture::new);
+        singleFlight.execute("b", CompletableFuture::new);
+
+        assertEquals(2, singleFlight.getInFlight());
+        assertEquals(0, singleFlight.getShared());
+    }
+
+}
@@ -0,0 +1,118 @@
+package de.joshicodes.javashock.ratelimit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestSchedulerTest {
+
+    private static final String ROUTE = "/2/shockers/control";
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hands out a permit whenever one was granted by the test, and counts the permits taken.
+     */
+    private static final class ManualLimiter implements RateLimiter {
+
+        private final AtomicInteger available = new AtomicInteger();
+        private final AtomicInteger taken = new AtomicInteger();
+
+        @Override
+        public long tryAcquire(final long nowNanos) {
+            if (available.getAndUpdate(permits -> Math.max(0, permits - 1)) > 0) {
+                taken.incrementAndGet();
+                return 0;
+            }
+            return TimeUnit.MILLISECONDS.toNanos(10);
+        }
+
+    }
+
+    private static CompletableFuture<String> task(final AtomicInteger runs, final String result) {
+        runs.incrementAndGet();
+        return CompletableFuture.completedFuture(result);
+    }
+
+    @Test
+    void cancelledRequestDoesNotUseUpThePermit() {
+        final ManualLimiter limiter = new ManualLimiter();
+        final RequestScheduler scheduler = new RequestScheduler(() -> executor, Map.of(ROUTE, limiter), null);
+        final AtomicInteger runs = new AtomicInteger();
+
+        final CompletableFuture<String> cancelled = scheduler.schedule(ROUTE, RequestPriority.NORMAL, () -> task(runs, "cancelled"));
+        final CompletableFuture<String> next = scheduler.schedule(ROUTE, RequestPriority.NORMAL, () -> task(runs, "next"));
+        assertEquals(2, scheduler.getQueued(ROUTE));
+        cancelled.cancel(false);
+
+        limiter.available.set(1);
+        assertEquals("next", next.join());
+        assertEquals(1, runs.get());
+        assertEquals(1, limiter.taken.get());
+        assertEquals(0, scheduler.getQueued(ROUTE));
+    }
+
+    @Test
+    void higherPriorityIsSentFirst() {
+        final ManualLimiter limiter = new ManualLimiter();
+        final RequestScheduler scheduler = new RequestScheduler(() -> executor, Map.of(ROUTE, limiter), null);
+        final AtomicInteger runs = new AtomicInteger();
+
+        final CompletableFuture<String> normal = scheduler.schedule(ROUTE, RequestPriority.NORMAL, () -> task(runs, "normal"));
+        final CompletableFuture<String> high = scheduler.schedule(ROUTE, RequestPriority.HIGH, () -> task(runs, "high"));
+
+        limiter.available.set(1);
+        assertEquals("high", high.join());
+        assertFalse(normal.isDone());
+        limiter.available.set(1);
+        assertEquals("normal", normal.join());
+    }
+
+    @Test
+    void rejectedWakeupFailsQueuedRequests() {
+        final ManualLimiter limiter = new ManualLimiter();
+        executor.shutdown();
+        final RequestScheduler scheduler = new RequestScheduler(() -> executor, Map.of(ROUTE, limiter), null);
+        final AtomicInteger runs = new AtomicInteger();
+
+        final CompletableFuture<String> first = scheduler.schedule(ROUTE, RequestPriority.NORMAL, () -> task(runs, "first"));
+        final CompletableFuture<String> second = scheduler.schedule(ROUTE, RequestPriority.NORMAL, () -> task(runs, "second"));
+
+        assertInstanceOf(RejectedExecutionException.class, assertThrows(CompletionException.class, first::join).getCause());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(0, runs.get());
+        assertEquals(0, scheduler.getQueued(ROUTE));
+    }
+
+    @Test
+    void pausedRouteHoldsRequestsBack() {
+        final RequestScheduler scheduler = new RequestScheduler(() -> executor, Map.of(), null);
+        final AtomicInteger runs = new AtomicInteger();
+
+        scheduler.pause(ROUTE, Duration.ofMillis(100));
+        final long start = System.nanoTime();
+        assertEquals("paused", scheduler.schedule(ROUTE, RequestPriority.NORMAL, () -> task(runs, "paused")).join());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+    }
+
+}
@@ -0,0 +1,325 @@
+package de.joshicodes.javashock.testkit;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.action.control.ControlData;
+import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.util.NamedThreadFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends control commands through a JavaShock instance and measures their throughput and latency. <br>
+ * Without a rate, a fixed number of commands is kept in flight (closed loop).
+ * With a rate, commands are started on a fixed schedule regardless of the responses (open loop),
+ * and the latency is measured from the planned start, so a stalled client does not hide its own delay.
+ * <br><br>
+ * It can also be started from the command line, see {@link #main(String[])}.
+ *
+ * @see MockOpenShockServer
+ */
+public class LoadGenerator {
+
+    public static Builder builder(final JavaShock instance) {
+        return new Builder(instance);
+    }
+
+    private final JavaShock instance;
+    private final List<Shocker> shockers;
+    private final ControlData data;
+    private final int concurrency;
+    private final int rate;
+    private final Duration duration;
+    private final Duration warmup;
+
+    private LoadGenerator(final Builder builder) {
+        this.instance = builder.instance;
+        this.shockers = builder.shockers != null ? List.copyOf(builder.shockers) : List.copyOf(instance.getCachedShockers());
+        if (shockers.isEmpty())
+            throw new IllegalArgumentException("Shockers cannot be empty");
+        this.data = builder.data;
+        this.concurrency = builder.concurrency;
+        this.rate = builder.rate;
+        this.duration = builder.duration;
+        this.warmup = builder.warmup;
+    }
+
+    /**
+     * Runs the warmup, if any, and then the measured load. Blocks until all started commands completed.
+     *
+     * @return the report of the measured run
+     */
+    public LoadReport run() {
+        if (!warmup.isZero())
+            run(warmup);
+        return run(duration);
+    }
+
+    private LoadReport run(final Duration duration) {
+        final Recorder recorder = new Recorder();
+        final long start = System.nanoTime();
+        final long end = start + duration.toNanos();
+        if (rate > 0) runOpenLoop(recorder, start, end);
+        else runClosedLoop(recorder, end);
+        return recorder.report(Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void runClosedLoop(final Recorder recorder, final long end) {
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        final AtomicLong sequence = new AtomicLong();
+        for (int i = 0; i < concurrency; i++) {
+            next(recorder, sequence, end, done);
+        }
+        await(done);
+    }
+
+    private void next(final Recorder recorder, final AtomicLong sequence, final long end, final CountDownLatch done) {
+        while (true) {
+            final long start = System.nanoTime();
+            if (start - end >= 0) {
+                done.countDown();
+                return;
+            }
+            final CompletableFuture<Boolean> future = send(sequence.getAndIncrement());
+            if (!future.isDone()) {
+                future.whenComplete((result, error) -> {
+                    recorder.record(System.nanoTime() - start, error == null && Boolean.TRUE.equals(result));
+                    next(recorder, sequence, end, done);
+                });
+                return;
+            }
+            // loop instead of recursing, commands that fail at once would overflow the stack otherwise
+            recorder.record(System.nanoTime() - start, !future.isCompletedExceptionally() && Boolean.TRUE.equals(future.getNow(false)));
+        }
+    }
+
+    private void runOpenLoop(final Recorder recorder, final long start, final long end) {
+        final long interval = Math.max(1, TimeUnit.SECONDS.toNanos(1) / rate);
+        final long total = Math.max(1, (end - start) / interval);
+        final CountDownLatch done = new CountDownLatch((int) Math.min(Integer.MAX_VALUE, total));
+        final AtomicLong sequence = new AtomicLong();
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("LoadGenerator"));
+        try {
+            scheduler.scheduleAtFixedRate(() -> {
+                // catch up on missed ticks, each command keeps its planned start
+                final long now = System.nanoTime();
+                long index;
+                while ((index = sequence.get()) < total && start + index * interval - now <= 0) {
+                    if (!sequence.compareAndSet(index, index + 1)) continue;
+                    final long planned = start + index * interval;
+                    send(index).whenComplete((result, error) -> {
+                        recorder.record(System.nanoTime() - planned, error == null && Boolean.TRUE.equals(result));
+                        done.countDown();
+                    });
+                }
+            }, 0, interval, TimeUnit.NANOSECONDS);
+            await(done);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Boolean> send(final long sequence) {
+        final Shocker shocker = shockers.get((int) (sequence % shockers.size()));
+        try {
+            return shocker.prepareControl(data).submit();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the load to complete", e);
+        }
+    }
+
+    /**
+     * Starts a {@link MockOpenShockServer}, or uses a given API, and prints the report of a load run. <br>
+     * Arguments are given as {@code key=value}:
+     * <ul>
+     *     <li>{@code url} the API host, a mock server is started if missing</li>
+     *     <li>{@code token} the API token</li>
+     *     <li>{@code duration} the measured seconds, defaults to 10</li>
+     *     <li>{@code warmup} the warmup seconds, defaults to 2</li>
+     *     <li>{@code concurrency} the commands in flight, defaults to 16</li>
+     *     <li>{@code rate} the commands per second, 0 (default) for a closed loop</li>
+     *     <li>{@code hubs}, {@code shockers} the hubs and shockers per hub of the mock server, default to 4 and 4</li>
+     *     <li>{@code latency}, {@code jitter} the response latency of the mock server in milliseconds, default to 0</li>
+     *     <li>{@code errorRate} the error rate of the mock server, defaults to 0</li>
+     * </ul>
+     *
+     * @param args the arguments
+     * @throws IOException if the mock server could not be started
+     */
+    public static void main(final String[] args) throws IOException {
+        final Map<String, String> options = new HashMap<>();
+        for (final String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (separator < 0)
+                throw new IllegalArgumentException("Arguments must be given as key=value: " + arg);
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        MockOpenShockServer server = null;
+        String url = options.get("url");
+        if (url == null) {
+            server = MockOpenShockServer.builder()
+                    .hubs(Integer.parseInt(options.getOrDefault("hubs", "4")), Integer.parseInt(options.getOrDefault("shockers", "4")))
+                    .latency(
+                            Duration.ofMillis(Long.parseLong(options.getOrDefault("latency", "0"))),
+                            Duration.ofMillis(Long.parseLong(options.getOrDefault("jitter", "0")))
+                    )
+                    .errorRate(Double.parseDouble(options.getOrDefault("errorRate", "0")))
+                    .start();
+            url = server.getUrl();
+        }
+        try (JavaShock instance = JavaShock.builder(options.getOrDefault("token", "load-test")).apiHost(url).build()) {
+            instance.ready().join();
+            final LoadReport report = builder(instance)
+                    .concurrency(Integer.parseInt(options.getOrDefault("concurrency", "16")))
+                    .rate(Integer.parseInt(options.getOrDefault("rate", "0")))
+                    .duration(Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "10"))))
+                    .warmup(Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "2"))))
+                    .build()
+                    .run();
+            System.out.println(report);
+        } finally {
+            if (server != null) server.close();
+        }
+    }
+
+    /**
+     * Collects the latencies of a run.
+     */
+    private static final class Recorder {
+
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private long[] latencies = new long[1024];
+        private int size;
+
+        private void record(final long latency, final boolean success) {
+            if (success) succeeded.increment();
+            else failed.increment();
+            synchronized (this) {
+                if (size == latencies.length)
+                    latencies = Arrays.copyOf(latencies, size * 2);
+                latencies[size++] = latency;
+            }
+        }
+
+        private LoadReport report(final Duration elapsed) {
+            final long[] sorted;
+            synchronized (this) {
+                sorted = Arrays.copyOf(latencies, size);
+            }
+            Arrays.sort(sorted);
+            return new LoadReport(succeeded.sum(), failed.sum(), elapsed, sorted);
+        }
+
+    }
+
+    public static class Builder {
+
+        private final JavaShock instance;
+        private List<Shocker> shockers;
+        private ControlData data = new ControlData(ControlData.ControlType.VIBRATE, 10, 300);
+        private int concurrency = 16;
+        private int rate = 0;
+        private Duration duration = Duration.ofSeconds(10);
+        private Duration warmup = Duration.ZERO;
+
+        private Builder(final JavaShock instance) {
+            if (instance == null)
+                throw new IllegalArgumentException("Instance cannot be null");
+            this.instance = instance;
+        }
+
+        /**
+         * @param shockers the shockers the commands are sent to in turn, defaults to all cached shockers
+         * @return this builder
+         */
+        public Builder shockers(final List<Shocker> shockers) {
+            if (shockers == null || shockers.isEmpty())
+                throw new IllegalArgumentException("Shockers cannot be empty");
+            this.shockers = new ArrayList<>(shockers);
+            return this;
+        }
+
+        /**
+         * @param data the command to send, defaults to a short vibration
+         * @return this builder
+         */
+        public Builder controlData(final ControlData data) {
+            if (data == null)
+                throw new IllegalArgumentException("Control data cannot be null");
+            this.data = data;
+            return this;
+        }
+
+        /**
+         * @param concurrency the number of commands kept in flight without a rate
+         * @return this builder
+         */
+        public Builder concurrency(final int concurrency) {
+            if (concurrency < 1)
+                throw new IllegalArgumentException("Concurrency must be at least 1");
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * @param rate the commands started per second, or 0 to keep a fixed number in flight instead
+         * @return this builder
+         */
+        public Builder rate(final int rate) {
+            if (rate < 0)
+                throw new IllegalArgumentException("Rate cannot be negative");
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         * @param duration the duration of the measured run
+         * @return this builder
+         */
+        public Builder duration(final Duration duration) {
+            if (duration == null || duration.isNegative() || duration.isZero())
+                throw new IllegalArgumentException("Duration must be positive");
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * @param warmup the duration of a run before the measured one, whose results are discarded
+         * @return this builder
+         */
+        public Builder warmup(final Duration warmup) {
+            if (warmup == null || warmup.isNegative())
+                throw new IllegalArgumentException("Warmup cannot be negative");
+            this.warmup = warmup;
+            return this;
+        }
+
+        public LoadGenerator build() {
+            return new LoadGenerator(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package de.joshicodes.javashock.testkit;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * The result of a {@link LoadGenerator} run.
+ */
+public class LoadReport {
+
+    private final long succeeded;
+    private final long failed;
+    private final Duration elapsed;
+    private final long[] latencies;
+
+    /**
+     * @param succeeded the number of successful commands
+     * @param failed    the number of failed commands
+     * @param elapsed   the duration of the run
+     * @param latencies the latency of every command in nanoseconds, sorted ascending
+     */
+    LoadReport(final long succeeded, final long failed, final Duration elapsed, final long[] latencies) {
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.elapsed = elapsed;
+        this.latencies = latencies;
+    }
+
+    public long getRequests() {
+        return succeeded + failed;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return the completed commands per second
+     */
+    public double getThroughput() {
+        final long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : getRequests() * 1e9 / nanos;
+    }
+
+    /**
+     * @param percentile the percentile between 0 and 100
+     * @return the latency that the given share of commands did not exceed
+     */
+    public Duration getPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        if (latencies.length == 0) return Duration.ZERO;
+        final int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+        return Duration.ofNanos(latencies[Math.max(0, Math.min(latencies.length - 1, index))]);
+    }
+
+    public Duration getP50() {
+        return getPercentile(50);
+    }
+
+    public Duration getP99() {
+        return getPercentile(99);
+    }
+
+    public Duration getMax() {
+        return getPercentile(100);
+    }
+
+    /**
+     * @return the latencies of all commands in nanoseconds, sorted ascending
+     */
+    public long[] getLatencies() {
+        return Arrays.copyOf(latencies, latencies.length);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d requests (%d failed) in %.2f s, %.1f req/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                getRequests(), failed, elapsed.toNanos() / 1e9, getThroughput(),
+                getP50().toNanos() / 1e6, getP99().toNanos() / 1e6, getMax().toNanos() / 1e6
+        );
+    }
+
+}
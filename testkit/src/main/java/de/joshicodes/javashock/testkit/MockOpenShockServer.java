@@ -0,0 +1,561 @@
+package de.joshicodes.javashock.testkit;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.joshicodes.javashock.ratelimit.RateLimiter;
+import de.joshicodes.javashock.ratelimit.TokenBucket;
+import de.joshicodes.javashock.util.NamedThreadFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An embeddable fake of the OpenShock API for offline and load tests. <br>
+ * It serves {@code /1/shockers/own}, {@code /1/shockers/{id}}, {@code /1/devices/{id}/shockers} and {@code /2/shockers/control}
+ * for a generated set of hubs and shockers.
+ * Latency, the error rate and the rate limit can be changed while the server is running.
+ * The shocker lists are sent with an {@code ETag} and answered with {@code 304 Not Modified} if it matches {@code If-None-Match}.
+ * <br><br>
+ * Point a JavaShock instance at it with {@link #getUrl()}:
+ * <pre>{@code
+ * try (MockOpenShockServer server = MockOpenShockServer.builder().hubs(2, 5).latency(Duration.ofMillis(20)).start();
+ *      JavaShock shock = JavaShock.builder("token").apiHost(server.getUrl()).build()) {
+ *     shock.ready().join();
+ *     ...
+ * }
+ * }</pre>
+ *
+ * @see LoadGenerator
+ */
+public class MockOpenShockServer implements AutoCloseable {
+
+    static {
+        // without it, small responses wait for the delayed ACK of the client and every round trip takes ~40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Generates hubs with random ids.
+     *
+     * @param hubs           the number of hubs
+     * @param shockersPerHub the number of shockers per hub
+     * @return the hubs
+     */
+    public static List<MockHub> generateHubs(final int hubs, final int shockersPerHub) {
+        final List<MockHub> list = new ArrayList<>(hubs);
+        for (int h = 0; h < hubs; h++) {
+            final String hubId = UUID.randomUUID().toString();
+            final List<MockShocker> shockers = new ArrayList<>(shockersPerHub);
+            for (int s = 0; s < shockersPerHub; s++) {
+                shockers.add(new MockShocker(UUID.randomUUID().toString(), "Shocker " + s, 1000 + s, "CaiXianlin", false, hubId));
+            }
+            list.add(new MockHub(hubId, "Hub " + h, List.copyOf(shockers)));
+        }
+        return List.copyOf(list);
+    }
+
+    /**
+     * Builds a {@code /1/shockers/own} response body.
+     *
+     * @param hubs the hubs
+     * @return the UTF-8 encoded JSON body
+     */
+    public static byte[] ownShockersBody(final List<MockHub> hubs) {
+        final JsonArray data = new JsonArray();
+        for (final MockHub hub : hubs) {
+            final JsonObject object = new JsonObject();
+            object.addProperty("id", hub.id());
+            object.addProperty("name", hub.name());
+            object.addProperty("createdOn", "2024-01-01T00:00:00Z");
+            final JsonArray shockers = new JsonArray();
+            hub.shockers().forEach(shocker -> shockers.add(shocker.toJson(false)));
+            object.add("shockers", shockers);
+            data.add(object);
+        }
+        return response(data);
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private volatile List<MockHub> hubs;
+    private volatile Map<String, MockShocker> shockers;
+    private volatile byte[] ownShockers;
+    private final String token;
+
+    private volatile long latencyNanos;
+    private volatile long jitterNanos;
+    private volatile double errorRate;
+    private volatile RateLimiter rateLimiter;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder controlCommands = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    private MockOpenShockServer(final Builder builder) throws IOException {
+        setHubs(builder.hubs != null ? List.copyOf(builder.hubs) : generateHubs(builder.hubCount, builder.shockersPerHub));
+        this.token = builder.token;
+        latency(builder.latency, builder.jitter);
+        errorRate(builder.errorRate);
+        this.rateLimiter = builder.rateLimiter;
+
+        this.executor = Executors.newCachedThreadPool(new NamedThreadFactory("MockOpenShock"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("MockOpenShock-Latency"));
+        this.server = HttpServer.create(new InetSocketAddress(builder.host, builder.port), builder.backlog);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return the base url to use as API host
+     */
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the served hubs with their shockers
+     */
+    public List<MockHub> getHubs() {
+        return hubs;
+    }
+
+    /**
+     * Replaces a served shocker with the same id, e.g. to pause or rename it.
+     *
+     * @param shocker the new state of the shocker
+     */
+    public synchronized void updateShocker(final MockShocker shocker) {
+        if (!shockers.containsKey(shocker.id()))
+            throw new IllegalArgumentException("Unknown shocker " + shocker.id());
+        final List<MockHub> updated = new ArrayList<>(hubs.size());
+        for (final MockHub hub : hubs) {
+            final List<MockShocker> list = new ArrayList<>(hub.shockers());
+            list.replaceAll(existing -> existing.id().equals(shocker.id()) ? shocker : existing);
+            updated.add(new MockHub(hub.id(), hub.name(), List.copyOf(list)));
+        }
+        setHubs(List.copyOf(updated));
+    }
+
+    private synchronized void setHubs(final List<MockHub> hubs) {
+        final Map<String, MockShocker> shockers = new HashMap<>();
+        hubs.forEach(hub -> hub.shockers().forEach(shocker -> shockers.put(shocker.id(), shocker)));
+        this.shockers = Map.copyOf(shockers);
+        this.ownShockers = ownShockersBody(hubs);
+        this.hubs = hubs;
+    }
+
+    /**
+     * @return the ids of all served shockers
+     */
+    public List<String> getShockerIds() {
+        final List<String> ids = new ArrayList<>(shockers.size());
+        hubs.forEach(hub -> hub.shockers().forEach(shocker -> ids.add(shocker.id())));
+        return Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * Sets the time every response is delayed by.
+     *
+     * @param latency the fixed latency
+     * @param jitter  the max random latency added on top, can be zero
+     */
+    public void latency(final Duration latency, final Duration jitter) {
+        if (latency == null || latency.isNegative() || jitter == null || jitter.isNegative())
+            throw new IllegalArgumentException("Latency and jitter cannot be negative");
+        this.latencyNanos = latency.toNanos();
+        this.jitterNanos = jitter.toNanos();
+    }
+
+    /**
+     * @param errorRate the share of requests answered with {@code 500 Internal Server Error}, between 0 and 1
+     */
+    public void errorRate(final double errorRate) {
+        if (errorRate < 0 || errorRate > 1)
+            throw new IllegalArgumentException("Error rate must be between 0 and 1");
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Limits the requests the server accepts, others are answered with {@code 429 Too Many Requests} and a {@code Retry-After} header.
+     *
+     * @param requests the requests per period, or 0 to remove the limit
+     * @param period   the period
+     */
+    public void rateLimit(final int requests, final Duration period) {
+        this.rateLimiter = requests <= 0 ? null : TokenBucket.perPeriod(requests, period);
+    }
+
+    /**
+     * @return the number of received requests
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of shocker commands received with control requests that were answered with success
+     */
+    public long getControlCommands() {
+        return controlCommands.sum();
+    }
+
+    /**
+     * @return the number of requests answered with a simulated error
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * @return the number of requests answered with {@code 429 Too Many Requests}
+     */
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * @return the number of requests answered with {@code 304 Not Modified}
+     */
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public void resetCounters() {
+        requests.reset();
+        controlCommands.reset();
+        errors.reset();
+        rateLimited.reset();
+        notModified.reset();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        requests.increment();
+        final byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+        final Response response = route(exchange, body);
+        final long delay = latencyNanos + (jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(jitterNanos + 1) : 0);
+        if (delay <= 0) {
+            send(exchange, response);
+            return;
+        }
+        // do not block a server thread for the latency, so slow responses do not limit the throughput
+        scheduler.schedule(() -> {
+            try {
+                send(exchange, response);
+            } catch (IOException ignored) {
+                exchange.close();
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    private Response route(final HttpExchange exchange, final byte[] body) {
+        if (token != null && !token.equals(exchange.getRequestHeaders().getFirst("OpenShockToken")))
+            return Response.error(401, "Invalid token");
+        final RateLimiter limiter = rateLimiter;
+        if (limiter != null) {
+            final long wait = limiter.tryAcquire(System.nanoTime());
+            if (wait > 0) {
+                rateLimited.increment();
+                final Response response = Response.error(429, "Too many requests");
+                response.headers.put("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999))));
+                return response;
+            }
+        }
+        final double errorRate = this.errorRate;
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errors.increment();
+            return Response.error(500, "Simulated error");
+        }
+        final String method = exchange.getRequestMethod();
+        final String path = exchange.getRequestURI().getPath();
+        if (path.equals("/1/shockers/own"))
+            return method.equals("GET") ? conditional(exchange, ownShockers) : Response.error(405, "Method not allowed");
+        if (path.equals("/2/shockers/control"))
+            return method.equals("POST") ? control(body) : Response.error(405, "Method not allowed");
+        if (path.startsWith("/1/devices/") && path.endsWith("/shockers") && method.equals("GET")) {
+            final String hubId = path.substring("/1/devices/".length(), path.length() - "/shockers".length());
+            for (final MockHub hub : hubs) {
+                if (!hub.id().equals(hubId)) continue;
+                final JsonArray data = new JsonArray();
+                hub.shockers().forEach(shocker -> data.add(shocker.toJson(false)));
+                return conditional(exchange, response(data));
+            }
+            return Response.error(404, "Device not found");
+        }
+        if (path.startsWith("/1/shockers/") && method.equals("GET")) {
+            final MockShocker shocker = shockers.get(path.substring("/1/shockers/".length()));
+            return shocker == null ? Response.error(404, "Shocker not found") : new Response(200, response(shocker.toJson(true)));
+        }
+        return Response.error(404, "Not found");
+    }
+
+    /**
+     * Answers with the body and its ETag, or with {@code 304 Not Modified} if the client already has it.
+     */
+    private Response conditional(final HttpExchange exchange, final byte[] body) {
+        final String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+        final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (final String tag : ifNoneMatch.split(",")) {
+                if (!tag.trim().equals(etag) && !tag.trim().equals("*")) continue;
+                notModified.increment();
+                final Response response = new Response(304, new byte[0]);
+                response.headers.put("ETag", etag);
+                return response;
+            }
+        }
+        final Response response = new Response(200, body);
+        response.headers.put("ETag", etag);
+        return response;
+    }
+
+    private Response control(final byte[] body) {
+        final JsonArray shocks;
+        try {
+            final JsonElement element = JsonParser.parseString(new String(body, StandardCharsets.UTF_8));
+            shocks = element.getAsJsonObject().getAsJsonArray("shocks");
+        } catch (RuntimeException e) {
+            return Response.error(400, "Invalid body");
+        }
+        if (shocks == null)
+            return Response.error(400, "Invalid body");
+        for (final JsonElement shock : shocks) {
+            final JsonObject object = shock.getAsJsonObject();
+            if (!object.has("id") || !shockers.containsKey(object.get("id").getAsString()))
+                return Response.error(404, "Shocker not found");
+        }
+        controlCommands.add(shocks.size());
+        return new Response(200, message("Successfully sent control messages"));
+    }
+
+    private static void send(final HttpExchange exchange, final Response response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        response.headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+        // -1 sends no body at all, as required for 304
+        exchange.sendResponseHeaders(response.status, response.body.length == 0 ? -1 : response.body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response.body);
+        }
+    }
+
+    private static byte[] response(final JsonElement data) {
+        final JsonObject object = new JsonObject();
+        object.addProperty("message", "");
+        object.add("data", data);
+        return object.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] message(final String message) {
+        final JsonObject object = new JsonObject();
+        object.addProperty("message", message);
+        return object.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * A served hub.
+     */
+    public record MockHub(String id, String name, List<MockShocker> shockers) {
+    }
+
+    /**
+     * A served shocker.
+     */
+    public record MockShocker(String id, String name, long rfId, String model, boolean paused, String hubId) {
+
+        private JsonObject toJson(final boolean withHub) {
+            final JsonObject object = new JsonObject();
+            object.addProperty("id", id);
+            object.addProperty("name", name);
+            object.addProperty("rfId", rfId);
+            object.addProperty("model", model);
+            object.addProperty("isPaused", paused);
+            object.addProperty("createdOn", "2024-01-01T00:00:00Z");
+            if (withHub) object.addProperty("device", hubId);
+            return object;
+        }
+
+    }
+
+    private static final class Response {
+
+        private final int status;
+        private final byte[] body;
+        private final Map<String, String> headers = new HashMap<>();
+
+        private Response(final int status, final byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        private static Response error(final int status, final String message) {
+            return new Response(status, message(message));
+        }
+
+    }
+
+    public static class Builder {
+
+        private String host = "127.0.0.1";
+        private int port = 0;
+        private int backlog = 0;
+        private int hubCount = 1;
+        private int shockersPerHub = 1;
+        private List<MockHub> hubs;
+        private String token;
+        private Duration latency = Duration.ZERO;
+        private Duration jitter = Duration.ZERO;
+        private double errorRate = 0;
+        private RateLimiter rateLimiter;
+
+        private Builder() {
+        }
+
+        /**
+         * @param host the address to bind to, defaults to {@code 127.0.0.1}
+         * @param port the port, or 0 for a free port
+         * @return this builder
+         */
+        public Builder bind(final String host, final int port) {
+            if (host == null)
+                throw new IllegalArgumentException("Host cannot be null");
+            this.host = host;
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param backlog the max number of pending connections, 0 for the system default
+         * @return this builder
+         */
+        public Builder backlog(final int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Generates the served hubs and shockers.
+         *
+         * @param hubs           the number of hubs
+         * @param shockersPerHub the number of shockers per hub
+         * @return this builder
+         */
+        public Builder hubs(final int hubs, final int shockersPerHub) {
+            if (hubs < 0 || shockersPerHub < 0)
+                throw new IllegalArgumentException("Hubs and shockers cannot be negative");
+            this.hubCount = hubs;
+            this.shockersPerHub = shockersPerHub;
+            this.hubs = null;
+            return this;
+        }
+
+        /**
+         * @param hubs the served hubs with their shockers
+         * @return this builder
+         */
+        public Builder hubs(final List<MockHub> hubs) {
+            if (hubs == null)
+                throw new IllegalArgumentException("Hubs cannot be null");
+            this.hubs = hubs;
+            return this;
+        }
+
+        /**
+         * @param token the only accepted API token, other requests are answered with {@code 401}. Null accepts every token
+         * @return this builder
+         */
+        public Builder token(final String token) {
+            this.token = token;
+            return this;
+        }
+
+        /**
+         * @see MockOpenShockServer#latency(Duration, Duration)
+         */
+        public Builder latency(final Duration latency, final Duration jitter) {
+            this.latency = latency;
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * @see MockOpenShockServer#latency(Duration, Duration)
+         */
+        public Builder latency(final Duration latency) {
+            return latency(latency, Duration.ZERO);
+        }
+
+        /**
+         * @see MockOpenShockServer#errorRate(double)
+         */
+        public Builder errorRate(final double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * @see MockOpenShockServer#rateLimit(int, Duration)
+         */
+        public Builder rateLimit(final int requests, final Duration period) {
+            this.rateLimiter = requests <= 0 ? null : TokenBucket.perPeriod(requests, period);
+            return this;
+        }
+
+        /**
+         * Starts the server.
+         *
+         * @return the running server
+         * @throws IOException if the server could not be bound
+         */
+        public MockOpenShockServer start() throws IOException {
+            return new MockOpenShockServer(this);
+        }
+
+    }
+
+}
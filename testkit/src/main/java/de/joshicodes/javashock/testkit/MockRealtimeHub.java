@@ -0,0 +1,425 @@
+package de.joshicodes.javashock.testkit;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.joshicodes.javashock.util.NamedThreadFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local stand-in for the OpenShock user hub, a WebSocket endpoint speaking the SignalR JSON protocol. <br>
+ * It acknowledges {@code ControlV2} invocations after a configurable latency and can push events to all clients.
+ * Only the parts of WebSocket and SignalR used by JavaShock are implemented.
+ * <pre>{@code
+ * try (MockRealtimeHub hub = MockRealtimeHub.builder().latency(Duration.ofMillis(5)).start();
+ *      JavaShock shock = JavaShock.builder("token").apiHost(server.getUrl()).realtimeUrl(hub.getUrl()).build()) {
+ *     shock.getRealtime().connect().join();
+ *     ...
+ * }
+ * }</pre>
+ */
+public class MockRealtimeHub implements AutoCloseable {
+
+    private static final String HUB_PATH = "/1/hubs/user";
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final char RECORD_SEPARATOR = '\u001e';
+
+    private static final int OPCODE_CONTINUATION = 0x0;
+    private static final int OPCODE_TEXT = 0x1;
+    private static final int OPCODE_CLOSE = 0x8;
+    private static final int OPCODE_PING = 0x9;
+    private static final int OPCODE_PONG = 0xA;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final ServerSocket server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final String token;
+
+    private volatile long latencyNanos;
+    private volatile String controlError;
+
+    private final LongAdder controlCommands = new LongAdder();
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder handshakes = new LongAdder();
+
+    private MockRealtimeHub(final Builder builder) throws IOException {
+        this.token = builder.token;
+        this.latencyNanos = builder.latency.toNanos();
+        this.executor = Executors.newCachedThreadPool(new NamedThreadFactory("MockRealtimeHub"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("MockRealtimeHub-Scheduler"));
+        this.server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getByName(builder.host), builder.port));
+        executor.execute(this::accept);
+        // SignalR servers ping every 15 seconds, clients give up after 30 seconds of silence
+        scheduler.scheduleWithFixedDelay(() -> connections.forEach(connection -> connection.sendRecord("{\"type\":6}")), 15, 15, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the WebSocket URL of the hub
+     */
+    public String getUrl() {
+        return "ws://" + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort() + HUB_PATH;
+    }
+
+    /**
+     * @param latency the time before an invocation is acknowledged
+     */
+    public void latency(final Duration latency) {
+        if (latency == null || latency.isNegative())
+            throw new IllegalArgumentException("Latency cannot be negative");
+        this.latencyNanos = latency.toNanos();
+    }
+
+    /**
+     * @param controlError the error control invocations are completed with, or null to acknowledge them
+     */
+    public void controlError(final String controlError) {
+        this.controlError = controlError;
+    }
+
+    /**
+     * @return the number of connected clients that completed the handshake
+     */
+    public int getConnections() {
+        return (int) connections.stream().filter(connection -> connection.handshaken).count();
+    }
+
+    /**
+     * @return the number of completed handshakes, including those of closed connections
+     */
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    /**
+     * @return the number of shocker commands received with {@code ControlV2} invocations
+     */
+    public long getControlCommands() {
+        return controlCommands.sum();
+    }
+
+    /**
+     * @return the number of received invocations
+     */
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    /**
+     * Invokes a method on all connected clients, like the hub does for device events.
+     *
+     * @param target    the name of the method, e.g. {@code DeviceStatus}
+     * @param arguments the arguments
+     */
+    public void broadcast(final String target, final JsonElement... arguments) {
+        final JsonObject message = new JsonObject();
+        message.addProperty("type", 1);
+        message.addProperty("target", target);
+        final JsonArray array = new JsonArray();
+        for (final JsonElement argument : arguments) array.add(argument);
+        message.add("arguments", array);
+        final String record = message.toString();
+        connections.forEach(connection -> {
+            if (connection.handshaken) connection.sendRecord(record);
+        });
+    }
+
+    /**
+     * Drops all connections without a close handshake, like a network failure.
+     */
+    public void disconnectAll() {
+        connections.forEach(Connection::abort);
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                final Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(final Socket socket) {
+        Connection connection = null;
+        try (socket) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final OutputStream out = socket.getOutputStream();
+            final Map<String, String> headers = new HashMap<>();
+            final String requestLine = readLine(in);
+            for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+                final int colon = line.indexOf(':');
+                if (colon > 0)
+                    headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+            final String key = headers.get("sec-websocket-key");
+            if (requestLine == null || !requestLine.startsWith("GET " + HUB_PATH) || key == null) {
+                out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            if (token != null && !token.equals(headers.get("openshocktoken"))) {
+                out.write("HTTP/1.1 401 Unauthorized\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + accept(key) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            connection = new Connection(socket, out);
+            connections.add(connection);
+            read(connection, in);
+        } catch (IOException ignored) {
+            // connection lost
+        } finally {
+            if (connection != null) connections.remove(connection);
+        }
+    }
+
+    private void read(final Connection connection, final DataInputStream in) throws IOException {
+        final ByteArrayOutputStream message = new ByteArrayOutputStream();
+        while (true) {
+            final int first = in.read();
+            if (first < 0) return;
+            final boolean fin = (first & 0x80) != 0;
+            final int opcode = first & 0x0F;
+            final int second = in.readUnsignedByte();
+            long length = second & 0x7F;
+            if (length == 126) length = in.readUnsignedShort();
+            else if (length == 127) length = in.readLong();
+            final byte[] mask = new byte[4];
+            if ((second & 0x80) != 0) in.readFully(mask);
+            final byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            for (int i = 0; i < payload.length; i++) payload[i] ^= mask[i & 3];
+            switch (opcode) {
+                case OPCODE_TEXT, OPCODE_CONTINUATION -> {
+                    message.write(payload);
+                    if (fin) {
+                        received(connection, message.toString(StandardCharsets.UTF_8));
+                        message.reset();
+                    }
+                }
+                case OPCODE_PING -> connection.send(OPCODE_PONG, payload);
+                case OPCODE_CLOSE -> {
+                    connection.send(OPCODE_CLOSE, payload.length >= 2 ? new byte[]{payload[0], payload[1]} : new byte[0]);
+                    return;
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void received(final Connection connection, final String text) {
+        int start = 0;
+        int end;
+        while ((end = text.indexOf(RECORD_SEPARATOR, start)) >= 0) {
+            final String record = text.substring(start, end);
+            start = end + 1;
+            if (!connection.handshaken) {
+                final JsonObject handshake = JsonParser.parseString(record).getAsJsonObject();
+                if (!"json".equals(handshake.get("protocol").getAsString())) {
+                    connection.sendRecord("{\"error\":\"Unsupported protocol\"}");
+                    connection.abort();
+                    return;
+                }
+                connection.handshaken = true;
+                handshakes.increment();
+                connection.sendRecord("{}");
+                continue;
+            }
+            final JsonObject message = JsonParser.parseString(record).getAsJsonObject();
+            if (message.get("type").getAsInt() == 1) invoked(connection, message);
+        }
+    }
+
+    private void invoked(final Connection connection, final JsonObject message) {
+        invocations.increment();
+        final String target = message.get("target").getAsString();
+        final JsonArray arguments = message.getAsJsonArray("arguments");
+        String error = null;
+        if (target.equals("ControlV2")) {
+            error = controlError;
+            if (error == null) controlCommands.add(arguments.get(0).getAsJsonArray().size());
+        } else {
+            error = "Unknown method " + target;
+        }
+        final JsonElement invocationId = message.get("invocationId");
+        if (invocationId == null) return;
+        final JsonObject completion = new JsonObject();
+        completion.addProperty("type", 3);
+        completion.add("invocationId", invocationId);
+        if (error != null) completion.addProperty("error", error);
+        else completion.add("result", null);
+        final long latency = latencyNanos;
+        if (latency <= 0) connection.sendRecord(completion.toString());
+        else scheduler.schedule(() -> connection.sendRecord(completion.toString()), latency, TimeUnit.NANOSECONDS);
+    }
+
+    private static String readLine(final DataInputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') {
+                final int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') line.setLength(length - 1);
+                return line.toString();
+            }
+            line.append((char) c);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+
+    private static String accept(final String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+        }
+        disconnectAll();
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+        private final OutputStream out;
+        private volatile boolean handshaken;
+
+        private Connection(final Socket socket, final OutputStream out) {
+            this.socket = socket;
+            this.out = out;
+        }
+
+        private void sendRecord(final String record) {
+            send(OPCODE_TEXT, (record + RECORD_SEPARATOR).getBytes(StandardCharsets.UTF_8));
+        }
+
+        private synchronized void send(final int opcode, final byte[] payload) {
+            try {
+                out.write(0x80 | opcode);
+                if (payload.length < 126) {
+                    out.write(payload.length);
+                } else if (payload.length <= 0xFFFF) {
+                    out.write(126);
+                    out.write(payload.length >>> 8);
+                    out.write(payload.length & 0xFF);
+                } else {
+                    out.write(127);
+                    for (int shift = 56; shift >= 0; shift -= 8) out.write((int) ((long) payload.length >>> shift) & 0xFF);
+                }
+                out.write(payload);
+                out.flush();
+            } catch (IOException e) {
+                abort();
+            }
+        }
+
+        private void abort() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+    }
+
+    public static class Builder {
+
+        private String host = "127.0.0.1";
+        private int port = 0;
+        private String token;
+        private Duration latency = Duration.ZERO;
+
+        private Builder() {
+        }
+
+        /**
+         * @param host the address to bind to, defaults to {@code 127.0.0.1}
+         * @param port the port, or 0 for a free port
+         * @return this builder
+         */
+        public Builder bind(final String host, final int port) {
+            if (host == null)
+                throw new IllegalArgumentException("Host cannot be null");
+            this.host = host;
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param token the only accepted API token, other connections are rejected with {@code 401}. Null accepts every token
+         * @return this builder
+         */
+        public Builder token(final String token) {
+            this.token = token;
+            return this;
+        }
+
+        /**
+         * @see MockRealtimeHub#latency(Duration)
+         */
+        public Builder latency(final Duration latency) {
+            if (latency == null || latency.isNegative())
+                throw new IllegalArgumentException("Latency cannot be negative");
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Starts the hub.
+         *
+         * @return the running hub
+         * @throws IOException if the hub could not be bound
+         */
+        public MockRealtimeHub start() throws IOException {
+            return new MockRealtimeHub(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+package de.joshicodes.javashock.testkit;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.http.DeadlineExceededException;
+import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.ratelimit.TokenBucket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineTest {
+
+    private MockOpenShockServer server;
+    private JavaShock shock;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = MockOpenShockServer.builder().hubs(1, 2).start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (shock != null) shock.shutdown();
+        server.close();
+    }
+
+    private static Throwable failure(final CompletableFuture<?> future) {
+        return assertThrows(CompletionException.class, future::join).getCause();
+    }
+
+    @Test
+    void commandWaitingForTheRateLimitIsDroppedAtItsDeadline() throws InterruptedException {
+        shock = JavaShock.builder("token").apiHost(server.getUrl())
+                .rateLimit("/2/shockers/control", TokenBucket.perPeriod(1, Duration.ofSeconds(1)))
+                .build();
+        shock.ready().join();
+        final Shocker shocker = shock.getCachedShockers().iterator().next();
+        server.resetCounters();
+
+        // takes the only token of the period
+        assertTrue(shocker.vibrate(10, 300, TimeUnit.MILLISECONDS).submit().join());
+        assertEquals(1, server.getRequests());
+
+        final CompletableFuture<Boolean> late = shocker.vibrate(20, 300, TimeUnit.MILLISECONDS)
+                .timeout(Duration.ofMillis(200))
+                .submit();
+        final DeadlineExceededException exceeded = assertInstanceOf(DeadlineExceededException.class, failure(late));
+        assertEquals(Duration.ofMillis(200), exceeded.getTimeout());
+
+        // the token of the next period must not send it late
+        Thread.sleep(1200);
+        assertEquals(1, server.getRequests());
+        assertEquals(1, server.getControlCommands());
+    }
+
+    @Test
+    void retryAfterBeyondTheDeadlineFailsAtOnce() {
+        shock = JavaShock.builder("token").apiHost(server.getUrl()).build();
+        shock.ready().join();
+        final Shocker shocker = shock.getCachedShockers().iterator().next();
+        server.rateLimit(1, Duration.ofSeconds(5));
+        server.resetCounters();
+
+        assertTrue(shocker.vibrate(10, 300, TimeUnit.MILLISECONDS).submit().join());
+        final long start = System.nanoTime();
+        final CompletableFuture<Boolean> limited = shocker.vibrate(20, 300, TimeUnit.MILLISECONDS)
+                .timeout(Duration.ofSeconds(1))
+                .submit();
+
+        // the 429 is passed on instead of waiting for a retry that would miss the deadline anyway
+        assertTrue(failure(limited).getMessage().contains("429"));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(2, server.getRequests());
+        assertEquals(1, server.getRateLimited());
+        assertEquals(1, server.getControlCommands());
+    }
+
+    @Test
+    void slowResponseFailsAtTheDeadline() {
+        shock = JavaShock.builder("token").apiHost(server.getUrl()).build();
+        shock.ready().join();
+        final String id = server.getShockerIds().get(0);
+        server.latency(Duration.ofSeconds(3), Duration.ZERO);
+
+        final long start = System.nanoTime();
+        final CompletableFuture<Shocker> slow = shock.retrieveShocker(id).timeout(Duration.ofMillis(300)).submit();
+
+        assertInstanceOf(DeadlineExceededException.class, failure(slow));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void cancellingTheFutureAbortsTheRequest() throws InterruptedException {
+        shock = JavaShock.builder("token").apiHost(server.getUrl()).build();
+        shock.ready().join();
+        final String id = server.getShockerIds().get(0);
+        server.latency(Duration.ofSeconds(3), Duration.ZERO);
+
+        final CompletableFuture<Shocker> request = shock.retrieveShocker(id).submit();
+        Thread.sleep(100);
+        assertTrue(request.cancel(true));
+
+        assertThrows(CancellationException.class, request::join);
+        assertEquals(0, shock.getSingleFlight().getInFlight());
+    }
+
+}
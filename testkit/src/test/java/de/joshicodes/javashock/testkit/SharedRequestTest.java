@@ -0,0 +1,70 @@
+package de.joshicodes.javashock.testkit;
+
+import de.joshicodes.javashock.JavaShock;
+import de.joshicodes.javashock.object.Shocker;
+import de.joshicodes.javashock.ratelimit.RequestPriority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SharedRequestTest {
+
+    private MockOpenShockServer server;
+    private JavaShock shock;
+    private String id;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = MockOpenShockServer.builder().hubs(1, 1).start();
+        shock = JavaShock.builder("token").apiHost(server.getUrl()).build();
+        shock.ready().join();
+        id = server.getShockerIds().get(0);
+        server.latency(Duration.ofMillis(200), Duration.ZERO);
+        server.resetCounters();
+    }
+
+    @AfterEach
+    void stop() {
+        shock.shutdown();
+        server.close();
+    }
+
+    @Test
+    void identicalRequestsShareOneRequest() {
+        final CompletableFuture<Shocker> first = shock.retrieveShocker(id).submit();
+        final CompletableFuture<Shocker> second = shock.retrieveShocker(id).submit();
+
+        assertEquals(first.join().getId(), second.join().getId());
+        assertEquals(1, server.getRequests());
+        assertEquals(1, shock.getSingleFlight().getShared());
+    }
+
+    @Test
+    void requestsWithTheirOwnTimingAreNotShared() {
+        final CompletableFuture<Shocker> shared = shock.retrieveShocker(id).submit();
+        final CompletableFuture<Shocker> timeout = shock.retrieveShocker(id).timeout(Duration.ofSeconds(5)).submit();
+
+        shared.join();
+        timeout.join();
+        assertEquals(2, server.getRequests());
+        assertEquals(0, shock.getSingleFlight().getShared());
+    }
+
+    @Test
+    void requestsWithOtherPrioritiesAreNotShared() {
+        final CompletableFuture<Shocker> normal = shock.retrieveShocker(id).submit();
+        final CompletableFuture<Shocker> high = shock.retrieveShocker(id).priority(RequestPriority.HIGH).submit();
+
+        normal.join();
+        high.join();
+        assertEquals(2, server.getRequests());
+        assertEquals(0, shock.getSingleFlight().getShared());
+    }
+
+}